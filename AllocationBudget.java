@@ -0,0 +1,40 @@
+package bytecodeNav;
+
+/**
+ * Budget measured in JumpPoints allocated per slice.
+ *
+ * @author David
+ */
+public class AllocationBudget implements SearchBudget {
+
+    final int nodes, slack;
+    int left;           // Allocations left in the current slice.
+
+    /**
+     * Constructor.
+     * @param nodes JumpPoints that may be allocated per slice.
+     * @param slack allocations left at which a partial path is returned.
+     */
+    public AllocationBudget(int nodes, int slack) {
+        this.nodes = nodes;
+        this.slack = slack;
+    }
+
+    public void begin() {
+        left = nodes;
+    }
+
+    public boolean hasRemaining() {
+        return left > 0;
+    }
+
+    public boolean isLow() {
+        return left < slack;
+    }
+
+    public void expanded() {}
+
+    public void allocated() {
+        left--;
+    }
+}
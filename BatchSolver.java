@@ -0,0 +1,224 @@
+package bytecodeNav;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Solves bursts of path queries on one map in parallel. Queries are split into
+ * chunks of CHUNK queries that run on a ForkJoinPool. The solver keeps a pool
+ * of Workers, each with its own SearchContext and waypoint buffer. A chunk
+ * takes an idle Worker of its batch, else an idle Worker of the solver, else
+ * a new one, and gives it back to its batch when it is done; the batch gives
+ * its Workers back to the solver once their waypoints are packed. A Worker
+ * appends the waypoints of every chunk it solves in a batch to its buffer,
+ * and they are copied from there straight into the PathBatch, so a query
+ * allocates nothing once the buffers have grown to the share of a batch that
+ * a Worker solves, and the cost per query does not grow with the size of the
+ * batch. There are never more Workers than chunks that ran at once, and they
+ * belong to the solver, not to the pool's threads, so they are collected with
+ * the solver.
+ *
+ * Searches run to completion with an unlimited ExpansionBudget. The paths of
+ * a batch are returned together in a PathBatch.
+ *
+ * @author David
+ */
+public class BatchSolver {
+
+    static final int CHUNK = 64;    // Queries per task.
+
+    final ForkJoinPool pool;        // Threads to search with.
+    final Supplier<SearchContext> contexts;     // Makes the context of each new Worker.
+    private Worker[] idle = new Worker[8];      // Workers not solving a chunk.
+    private int idleCount;
+
+    /**
+     * Constructor for searches that scan the map.
+     * @param map map to search. Must not change while a batch is solved.
+     */
+    public BatchSolver(Map map) {
+        this(() -> new SearchContext(map, new ExpansionBudget(Integer.MAX_VALUE, 0), new IntrinsicScan()),
+                ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor for JPS+ searches.
+     * @param table jump table of the map to search.
+     * @param bounds goal bounding boxes of the same map, or null.
+     */
+    public BatchSolver(JumpTable table, GoalBounds bounds) {
+        this(() -> new SearchContext(table, bounds, new ExpansionBudget(Integer.MAX_VALUE, 0)),
+                ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor.
+     * @param contexts makes the SearchContext of each worker thread. Every
+     * call must return a new context with its own budget.
+     * @param pool threads to search with.
+     */
+    public BatchSolver(Supplier<SearchContext> contexts, ForkJoinPool pool) {
+        this.pool = pool;
+        this.contexts = contexts;
+    }
+
+    /**
+     * @return an idle Worker with an empty buffer, or null if none is idle.
+     */
+    private synchronized Worker take() {
+        if (idleCount == 0) {
+            return null;
+        }
+        Worker worker = idle[--idleCount];
+        worker.used = 0;
+        return worker;
+    }
+
+    /**
+     * Return a Worker to the idle Workers.
+     */
+    private synchronized void give(Worker worker) {
+        if (idleCount == idle.length) {
+            idle = Arrays.copyOf(idle, idleCount * 2);
+        }
+        idle[idleCount++] = worker;
+    }
+
+    /**
+     * Solve a batch of queries.
+     * @param starts x,y of the start of each query.
+     * @param goals x,y of the goal of each query.
+     * @return the path of each query, in the same order.
+     */
+    public PathBatch solve(int[] starts, int[] goals) {
+        if (starts.length != goals.length || (starts.length & 1) != 0) {
+            throw new IllegalArgumentException("Starts and goals must be x,y pairs of the same length");
+        }
+        int queries = starts.length / 2;
+        int chunks = (queries + CHUNK - 1) / CHUNK;
+        int[] lengths = new int[queries];
+        Worker[] holders = new Worker[chunks];  // Worker whose buffer holds the waypoints of each chunk.
+        int[] from = new int[chunks];           // Index of the chunk's first waypoint in that buffer.
+        Crew crew = new Crew();
+        try {
+            pool.submit(() -> IntStream.range(0, chunks).parallel().forEach(c -> {
+                int first = c * CHUNK;
+                Worker worker = crew.take();
+                if (worker == null) {
+                    worker = take();
+                    if (worker == null) {
+                        worker = new Worker(contexts.get());
+                    }
+                    crew.join(worker);
+                }
+                try {
+                    from[c] = worker.used;
+                    holders[c] = worker;
+                    worker.solve(starts, goals, first, Math.min(first + CHUNK, queries), lengths);
+                } finally {
+                    crew.give(worker);
+                }
+            })).join();
+
+            // Pack the chunks into one buffer.
+            int[] offsets = new int[queries + 1];
+            for (int i = 0; i < queries; i++) {
+                offsets[i + 1] = offsets[i] + lengths[i];
+            }
+            int[] points = new int[offsets[queries] * 2];
+            for (int c = 0; c < chunks; c++) {
+                int first = offsets[c * CHUNK] * 2;
+                int end = offsets[Math.min(c * CHUNK + CHUNK, queries)] * 2;
+                System.arraycopy(holders[c].buffer, from[c], points, first, end - first);
+            }
+            return new PathBatch(offsets, points);
+        } finally {
+            for (int k = 0; k < crew.size; k++) {
+                give(crew.members[k]);
+            }
+        }
+    }
+
+    /**
+     * Workers of one batch. Their buffers hold waypoints of the batch until it
+     * is packed.
+     */
+    static class Crew {
+
+        Worker[] members = new Worker[8];   // Every Worker the batch has taken.
+        int size;
+        Worker[] idle = new Worker[8];      // Members not solving a chunk.
+        int idleCount;
+
+        /**
+         * @return an idle member, or null if none is idle.
+         */
+        synchronized Worker take() {
+            return idleCount > 0 ? idle[--idleCount] : null;
+        }
+
+        /**
+         * Add a Worker to the batch; it is busy until given back.
+         */
+        synchronized void join(Worker worker) {
+            if (size == members.length) {
+                members = Arrays.copyOf(members, size * 2);
+            }
+            members[size++] = worker;
+        }
+
+        /**
+         * Return a member after a chunk.
+         */
+        synchronized void give(Worker worker) {
+            if (idleCount == idle.length) {
+                idle = Arrays.copyOf(idle, idleCount * 2);
+            }
+            idle[idleCount++] = worker;
+        }
+    }
+
+    /**
+     * Search state of one worker thread.
+     */
+    static class Worker {
+
+        final SearchContext context;
+        int[] buffer = new int[1024];   // Waypoints of the chunks of the current batch.
+        int used;                       // Ints of buffer in use.
+
+        Worker(SearchContext context) {
+            this.context = context;
+        }
+
+        /**
+         * Solve queries first to last - 1, and append the waypoints of their
+         * paths to the buffer.
+         * @param lengths receives the number of waypoints of each path.
+         */
+        void solve(int[] starts, int[] goals, int first, int last, int[] lengths) {
+            for (int i = first; i < last; i++) {
+                int path = context.getPath(starts[i * 2], starts[i * 2 + 1], goals[i * 2], goals[i * 2 + 1]);
+                while (context.isSearching() && !context.reachedGoal()) {
+                    path = context.resume();
+                }
+                if (!context.reachedGoal()) {
+                    continue;
+                }
+                NodeArena nodes = context.getNodes();
+                int length = 0;
+                for (int n = path; n != NodeArena.NONE; n = nodes.next(n)) {
+                    if (used + 2 > buffer.length) {
+                        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    }
+                    buffer[used++] = nodes.x[n];
+                    buffer[used++] = nodes.y[n];
+                    length++;
+                }
+                lengths[i] = length;
+            }
+        }
+    }
+}
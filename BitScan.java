@@ -0,0 +1,53 @@
+package bytecodeNav;
+
+/**
+ * Bit scans that measure distances along a row of a 2D array of longs, where
+ * set bits are non-walkable squares. Every implementation returns the same
+ * results as NavTools for scans that end within three longs.
+ *
+ * - NavToolsScan uses NavTools, which is tuned for Battlecode's bytecode cost.
+ *   It only works on rows of four longs, i.e. 256x256 maps.
+ * - IntrinsicScan uses Long.numberOfTrailingZeros/numberOfLeadingZeros, which
+ *   a regular JVM compiles to single bit-scan instructions, and works on rows
+ *   of any length.
+ *
+ * @author David
+ */
+public interface BitScan {
+
+    /**
+     * Find the number of trailing zeroes in the long at the current position.
+     * @param x current x-coordinate.
+     * @param y current y-coordinate & y-index of the first long in the 2D array.
+     * @param map 2D array of longs representing the map based on set bits.
+     * @return number of bits between current position and the next set bit.
+     */
+    int distanceLeft(int x, int y, long[][] map);
+
+    /**
+     * Find the number of leading zeroes in the long at the current position.
+     * @param x current x-coordinate.
+     * @param y current y-coordinate & y-index of the first long in the 2D array.
+     * @param map 2D array of longs representing the map based on set bits.
+     * @return number of bits between current position and the next set bit.
+     */
+    int distanceRight(int x, int y, long[][] map);
+
+    /**
+     * Find the number of trailing ones in the long at the current position.
+     * @param x current x-coordinate.
+     * @param y current y-coordinate & y-index of the first long in the 2D array.
+     * @param map 2D array of longs representing the map based on set bits.
+     * @return number of bits between current position and the next unset bit.
+     */
+    int distanceVoidLeft(int x, int y, long[][] map);
+
+    /**
+     * Find the number of leading ones in the long at the current position.
+     * @param x current x-coordinate.
+     * @param y current y-coordinate & y-index of the first long in the 2D array.
+     * @param map 2D array of longs representing the map based on set bits.
+     * @return number of bits between current position and the next unset bit.
+     */
+    int distanceVoidRight(int x, int y, long[][] map);
+}
@@ -0,0 +1,44 @@
+package bytecodeNav;
+
+import battlecode.common.*;
+
+/**
+ * Budget measured in the bytecodes left in the current Battlecode round.
+ *
+ * @author David
+ */
+public class BytecodeBudget implements SearchBudget {
+
+    public static final int bytecodeLimit = 2000;   // Bytecodes kept for the rest of the round.
+    public static final int bytecodeSlack = 500;    // Bytecodes needed to return a partial path.
+
+    final int limit, slack;
+
+    public BytecodeBudget() {
+        this(bytecodeLimit, bytecodeSlack);
+    }
+
+    /**
+     * Constructor.
+     * @param limit bytecodes that must be left when the search stops.
+     * @param slack bytecodes above the limit needed to return a partial path.
+     */
+    public BytecodeBudget(int limit, int slack) {
+        this.limit = limit;
+        this.slack = slack;
+    }
+
+    public void begin() {}
+
+    public boolean hasRemaining() {
+        return Clock.getBytecodesLeft() > limit;
+    }
+
+    public boolean isLow() {
+        return Clock.getBytecodesLeft() < limit + slack;
+    }
+
+    public void expanded() {}
+
+    public void allocated() {}
+}
@@ -0,0 +1,311 @@
+package bytecodeNav;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Abstract graph of a map for long queries, after HPA* (Botea, Mueller and
+ * Schaeffer). The map is split into clusters of 64x64 squares, aligned with
+ * the longs of mapX so that each row of a cluster is one long. Where two
+ * clusters touch, every stretch of squares that can be crossed (an entrance)
+ * gets a transition: a pair of nodes, one on each side, one move apart. The
+ * nodes of a cluster are joined by the number of moves between them inside
+ * the cluster. A ClusterPlanner searches this graph and refines its paths
+ * with a SearchContext.
+ *
+ * Distances inside a cluster are found by a breadth-first search that works
+ * on whole rows: each row of a cluster is a single long, so a layer of the
+ * search is 64 shifts, ANDs and ORs. Clusters are connected in parallel.
+ *
+ * Moves and corner cutting follow the rest of the package, so every move
+ * costs 1. Besides the straight entrances of HPA*, a transition is made for
+ * every diagonal move across a border or corner that no straight move can
+ * replace, so the graph connects whatever the map connects. A ClusterGraph
+ * never changes once built, so it may be shared; it describes the map as it
+ * was when built; see isCurrent().
+ *
+ * @author David
+ */
+public class ClusterGraph {
+
+    static final int SIZE = 64;     // Width and height of a cluster: one long of each row.
+    static final int RUN = 6;       // Entrances at least this long get a transition at each end.
+
+    final Map map;              // Map the graph was built from.
+    final int version;          // Map.version() when the graph was built.
+    final int width, height;    // Size of the map.
+    final int columns, rows;    // Number of clusters across and down the map.
+    int nodes;                  // Number of nodes.
+    int[] nodeX, nodeY;         // Square of each node.
+    int[] nodeCluster;          // Cluster of each node, cy * columns + cx.
+    int[] nodeIndex;            // Index of each node in the members of its cluster.
+    int[][] across;             // Nodes of other clusters one move from each node.
+    final int[][] members;      // Nodes of each cluster.
+    final int[][] paths;        // Moves inside each cluster between every two of its members,
+                                // [i * members + j], or -1 if the cluster does not connect them.
+
+    private ClusterGraph(Map map) {
+        this.map = map;
+        version = map.version();
+        width = map.width;
+        height = map.height;
+        columns = (width + SIZE - 1) / SIZE;
+        rows = (height + SIZE - 1) / SIZE;
+        nodeX = new int[64];
+        nodeY = new int[64];
+        nodeCluster = new int[64];
+        nodeIndex = new int[64];
+        across = new int[64][];
+        members = new int[columns * rows][0];
+        paths = new int[columns * rows][];
+    }
+
+    /**
+     * Build the graph of a map.
+     * @param map map to abstract. Must not change while the graph is built.
+     * @return the graph.
+     */
+    public static ClusterGraph build(Map map) {
+        final ClusterGraph graph = new ClusterGraph(map);
+        for (int cy = 0; cy < graph.rows; cy++) {
+            for (int cx = 0; cx < graph.columns; cx++) {
+                int x = cx * SIZE + SIZE - 1, y = cy * SIZE + SIZE - 1;   // Last column and row.
+                if (x + 1 < graph.width) {
+                    graph.border(x, cy * SIZE, Math.min(graph.height, y + 1), true);
+                }
+                if (y + 1 < graph.height) {
+                    graph.border(y, cx * SIZE, Math.min(graph.width, x + 1), false);
+                }
+                if (x + 1 < graph.width && y + 1 < graph.height) {
+                    graph.corner(x, y);
+                }
+            }
+        }
+        IntStream.range(0, graph.members.length).parallel().forEach(c -> graph.connect(c, new Flood()));
+        return graph;
+    }
+
+    /**
+     * @return true if the graph still matches its map.
+     */
+    public boolean isCurrent() {
+        return map.version() == version;
+    }
+
+    /**
+     * @return number of nodes of the graph.
+     */
+    public int size() {
+        return nodes;
+    }
+
+    /**
+     * @return cluster of a square, cy * columns + cx.
+     */
+    int cluster(int x, int y) {
+        return (y / SIZE) * columns + x / SIZE;
+    }
+
+    /**
+     * @param vertical true if a and b are x and y, false if they are y and x.
+     * @return true if the square is walkable.
+     */
+    private boolean free(int a, int b, boolean vertical) {
+        return vertical ? !map.isBlocked(a, b) : !map.isBlocked(b, a);
+    }
+
+    /**
+     * Add the transitions across a border between two clusters.
+     * @param line x (vertical) or y of the last column or row before the border.
+     * @param from first y (vertical) or x along the border.
+     * @param to end of the border, exclusive.
+     * @param vertical true for a border between a cluster and the one to its right.
+     */
+    private void border(int line, int from, int to, boolean vertical) {
+        int run = -1;   // Start of the current entrance, or -1.
+        for (int i = from; i <= to; i++) {
+            boolean open = i < to && free(line, i, vertical) && free(line + 1, i, vertical);
+            if (open && run < 0) {
+                run = i;
+            } else if (!open && run >= 0) {
+                if (i - run >= RUN) {
+                    transition(line, run, 0, vertical);
+                    transition(line, i - 1, 0, vertical);
+                } else {
+                    transition(line, (run + i - 1) / 2, 0, vertical);
+                }
+                run = -1;
+            }
+            // Diagonal moves across the border where no straight move is possible.
+            if (i + 1 < to) {
+                boolean a = free(line, i, vertical), b = free(line + 1, i, vertical);
+                boolean c = free(line, i + 1, vertical), d = free(line + 1, i + 1, vertical);
+                if (a && d && !b && !c) {
+                    transition(line, i, 1, vertical);
+                } else if (b && c && !a && !d) {
+                    transition(line, i + 1, -1, vertical);
+                }
+            }
+        }
+    }
+
+    /**
+     * Add the diagonal transitions across the corner where four clusters
+     * meet, if no straight moves can go around it.
+     * @param x last column of the clusters on the left.
+     * @param y last row of the clusters at the top.
+     */
+    private void corner(int x, int y) {
+        boolean a = !map.isBlocked(x, y), b = !map.isBlocked(x + 1, y);
+        boolean c = !map.isBlocked(x, y + 1), d = !map.isBlocked(x + 1, y + 1);
+        if (a && d && !b && !c) {
+            link(node(x, y), node(x + 1, y + 1));
+        } else if (b && c && !a && !d) {
+            link(node(x + 1, y), node(x, y + 1));
+        }
+    }
+
+    /**
+     * Add a transition from square i of the line before a border to the
+     * square across it, shifted along the border.
+     */
+    private void transition(int line, int i, int shift, boolean vertical) {
+        if (vertical) {
+            link(node(line, i), node(line + 1, i + shift));
+        } else {
+            link(node(i, line), node(i + shift, line + 1));
+        }
+    }
+
+    /**
+     * Join two nodes of neighboring clusters.
+     */
+    private void link(int a, int b) {
+        for (int n : across[a]) {
+            if (n == b) {
+                return;
+            }
+        }
+        across[a] = append(across[a], b);
+        across[b] = append(across[b], a);
+    }
+
+    /**
+     * @return the node at a square, made if there is none.
+     */
+    private int node(int x, int y) {
+        int c = cluster(x, y);
+        for (int n : members[c]) {
+            if (nodeX[n] == x && nodeY[n] == y) {
+                return n;
+            }
+        }
+        if (nodes == nodeX.length) {
+            int capacity = nodes * 2;
+            nodeX = Arrays.copyOf(nodeX, capacity);
+            nodeY = Arrays.copyOf(nodeY, capacity);
+            nodeCluster = Arrays.copyOf(nodeCluster, capacity);
+            nodeIndex = Arrays.copyOf(nodeIndex, capacity);
+            across = Arrays.copyOf(across, capacity);
+        }
+        int n = nodes++;
+        nodeX[n] = x;
+        nodeY[n] = y;
+        nodeCluster[n] = c;
+        nodeIndex[n] = members[c].length;
+        across[n] = new int[0];
+        members[c] = append(members[c], n);
+        return n;
+    }
+
+    private static int[] append(int[] array, int value) {
+        int[] longer = Arrays.copyOf(array, array.length + 1);
+        longer[array.length] = value;
+        return longer;
+    }
+
+    /**
+     * Find the moves between every two members of a cluster.
+     */
+    private void connect(int c, Flood flood) {
+        int[] m = members[c];
+        int k = m.length;
+        int[] tx = new int[k], ty = new int[k], out = new int[k];
+        for (int j = 0; j < k; j++) {
+            tx[j] = nodeX[m[j]];
+            ty[j] = nodeY[m[j]];
+        }
+        int[] moves = new int[k * k];
+        for (int i = 0; i < k; i++) {
+            flood.search(map, c % columns, c / columns, tx[i], ty[i], tx, ty, k, out);
+            System.arraycopy(out, 0, moves, i * k, k);
+        }
+        paths[c] = moves;
+    }
+
+    /**
+     * Breadth-first search inside one cluster, a whole row of the cluster at
+     * a time. Holds the rows of the search, so it can be reused but not shared.
+     */
+    static final class Flood {
+
+        final long[] open = new long[SIZE];     // Walkable squares of each row.
+        final long[] seen = new long[SIZE];     // Squares found so far.
+        final long[] layer = new long[SIZE];    // Squares found in the last layer.
+        final long[] next = new long[SIZE];     // Squares of the layer being found.
+
+        /**
+         * Find the moves from a square to some targets without leaving the
+         * square's cluster.
+         * @param cx column of the cluster.
+         * @param cy row of the cluster.
+         * @param x x-coordinate of a walkable square of the cluster.
+         * @param y y-coordinate of the square.
+         * @param tx x-coordinate of each target, in the cluster.
+         * @param ty y-coordinate of each target.
+         * @param count number of targets.
+         * @param out moves to each target, or -1 if it cannot be reached.
+         */
+        void search(Map map, int cx, int cy, int x, int y, int[] tx, int[] ty, int count, int[] out) {
+            int top = cy * SIZE;
+            int n = Math.min(SIZE, map.height - top);
+            for (int r = 0; r < n; r++) {
+                open[r] = ~map.word(top + r, cx);
+                seen[r] = 0;
+                layer[r] = 0;
+            }
+            layer[y - top] = 1L << (63 - (x % 64));
+            seen[y - top] = layer[y - top];
+            int found = 0;
+            for (int j = 0; j < count; j++) {
+                out[j] = tx[j] == x && ty[j] == y ? 0 : -1;
+                found += out[j] + 1;
+            }
+            int first = y - top, last = y - top;    // Rows of the last layer with bits set.
+            for (int d = 1; found < count && first <= last; d++) {
+                int from = Math.max(0, first - 1), to = Math.min(n - 1, last + 1);
+                int nextFirst = n, nextLast = -1;
+                for (int r = from; r <= to; r++) {
+                    long near = layer[r] | (r > 0 ? layer[r - 1] : 0) | (r + 1 < n ? layer[r + 1] : 0);
+                    next[r] = (near | (near << 1) | (near >>> 1)) & open[r] & ~seen[r];
+                    if (next[r] != 0) {
+                        nextFirst = Math.min(nextFirst, r);
+                        nextLast = r;
+                    }
+                }
+                for (int r = from; r <= to; r++) {
+                    layer[r] = next[r];
+                    seen[r] |= next[r];
+                }
+                for (int j = 0; j < count; j++) {
+                    if (out[j] < 0 && (layer[ty[j] - top] & (1L << (63 - (tx[j] % 64)))) != 0) {
+                        out[j] = d;
+                        found++;
+                    }
+                }
+                first = nextFirst;
+                last = nextLast;
+            }
+        }
+    }
+}
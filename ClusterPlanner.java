@@ -0,0 +1,271 @@
+package bytecodeNav;
+
+import java.util.Arrays;
+
+/**
+ * Plans long paths on a ClusterGraph, then refines them one cluster at a time.
+ * plan() joins the start and the goal to the nodes of their clusters and runs
+ * A* on the graph, which has a few nodes per 64x64 cluster instead of 4096
+ * squares. The abstract path is kept as waypoints: the start, the square where
+ * the path enters each cluster, and the goal. refine() finds the path between
+ * two waypoints with a SearchContext, so a unit only searches the stretch it
+ * is about to walk.
+ *
+ * Abstract paths are optimal on the graph, and close to optimal on the map;
+ * each refined stretch is optimal between its waypoints. Every ClusterPlanner
+ * needs its own SearchContext, but planners may share a graph.
+ *
+ * @author David
+ */
+public class ClusterPlanner {
+
+    final ClusterGraph graph;       // Graph to plan on.
+    final SearchContext context;    // Search that refines the waypoints.
+    private final ClusterGraph.Flood flood = new ClusterGraph.Flood();
+    private final int[] cost;       // Moves from the start to each node, if stamped with generation.
+    private final int[] parent;     // Node before each node in the cheapest path found.
+    private final int[] stamp;
+    private int generation;         // Stamp of the current plan.
+    private long[] open = new long[64]; // Binary heap of (estimate << 32 | node).
+    private int size;                   // Number of entries in the heap.
+    private int[] startMoves = new int[8], goalMoves = new int[8];  // Moves to the members of the
+                                                                    // start's and goal's clusters.
+    private int[] tx = new int[8], ty = new int[8];     // Squares of the members of a cluster.
+
+    private int ax, ay, bx, by;     // Start and goal of the latest plan.
+    private int[] waypointX = new int[16], waypointY = new int[16];
+    private int waypoints;          // Number of waypoints of the latest plan, 0 if none.
+    private int length;             // Moves along the abstract path of the latest plan.
+
+    /**
+     * Constructor.
+     * @param g graph of the map to plan on. May be shared.
+     * @param c search of the same map that refines the waypoints. Must not be
+     * shared.
+     */
+    public ClusterPlanner(ClusterGraph g, SearchContext c) {
+        if (c.map != g.map) {
+            throw new IllegalArgumentException("SearchContext of another map");
+        }
+        graph = g;
+        context = c;
+        cost = new int[g.nodes + 2];
+        parent = new int[g.nodes + 2];
+        stamp = new int[g.nodes + 2];
+    }
+
+    /**
+     * Plan a path from (ax,ay) to (bx,by) on the graph.
+     * @return true if there is a path.
+     */
+    public boolean plan(int ax, int ay, int bx, int by) {
+        this.ax = ax;
+        this.ay = ay;
+        this.bx = bx;
+        this.by = by;
+        waypoints = 0;
+        length = -1;
+        if (graph.map.isBlocked(ax, ay) || graph.map.isBlocked(bx, by)) {
+            return false;
+        }
+        if (++generation == 0) {    // Stamps wrapped around; clear them once.
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+        int start = graph.nodes, goal = graph.nodes + 1;   // Nodes of the start and the goal.
+        int startCluster = graph.cluster(ax, ay), goalCluster = graph.cluster(bx, by);
+        startMoves = moves(startCluster, ax, ay, startCluster == goalCluster, startMoves);
+        goalMoves = moves(goalCluster, bx, by, false, goalMoves);
+
+        size = 0;
+        reach(start, -1, 0);
+        while (size > 0) {
+            long top = open[0];
+            remove();
+            int u = (int) top;
+            int g = cost[u];
+            if ((int) (top >>> 32) != g + estimate(u)) {
+                continue;   // A cheaper way to u was queued after this one.
+            }
+            if (u == goal) {
+                length = g;
+                retrace();
+                return true;
+            }
+            if (u == start) {
+                int[] m = graph.members[startCluster];
+                for (int j = 0; j < m.length; j++) {
+                    if (startMoves[j] >= 0) {
+                        reach(m[j], u, startMoves[j]);
+                    }
+                }
+                if (startMoves[m.length] >= 0) {    // Goal in the same cluster.
+                    reach(goal, u, startMoves[m.length]);
+                }
+            } else {
+                int cluster = graph.nodeCluster[u];
+                int[] m = graph.members[cluster];
+                int[] paths = graph.paths[cluster];
+                int row = graph.nodeIndex[u] * m.length;
+                for (int j = 0; j < m.length; j++) {
+                    if (paths[row + j] > 0) {
+                        reach(m[j], u, g + paths[row + j]);
+                    }
+                }
+                for (int n : graph.across[u]) {
+                    reach(n, u, g + 1);
+                }
+                if (cluster == goalCluster && goalMoves[graph.nodeIndex[u]] >= 0) {
+                    reach(goal, u, g + goalMoves[graph.nodeIndex[u]]);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return number of waypoints of the latest plan, or 0 if it has no path.
+     */
+    public int waypoints() {
+        return waypoints;
+    }
+
+    public int getWaypointX(int i) {
+        return waypointX[i];
+    }
+
+    public int getWaypointY(int i) {
+        return waypointY[i];
+    }
+
+    /**
+     * @return moves along the abstract path of the latest plan, or -1.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Find the path from waypoint i to waypoint i + 1 of the latest plan.
+     * @return the node at the start of the path in context.getNodes(), or
+     * NodeArena.NONE if there is no path.
+     */
+    public int refine(int i) {
+        return context.getPath(waypointX[i], waypointY[i], waypointX[i + 1], waypointY[i + 1]);
+    }
+
+    /**
+     * Find the moves from a square to the members of its cluster inside it.
+     * @param toGoal true to also find the moves to the goal, after the members.
+     * @param out array to reuse for the moves, if it is long enough.
+     * @return the moves, or -1 for members that cannot be reached.
+     */
+    private int[] moves(int cluster, int x, int y, boolean toGoal, int[] out) {
+        int[] m = graph.members[cluster];
+        int count = m.length + (toGoal ? 1 : 0);
+        if (out.length <= count) {
+            out = new int[count + 1];
+        }
+        if (tx.length <= count) {
+            tx = new int[count + 1];
+            ty = new int[count + 1];
+        }
+        for (int j = 0; j < m.length; j++) {
+            tx[j] = graph.nodeX[m[j]];
+            ty[j] = graph.nodeY[m[j]];
+        }
+        tx[m.length] = bx;
+        ty[m.length] = by;
+        out[m.length] = -1;
+        flood.search(graph.map, cluster % graph.columns, cluster / graph.columns, x, y, tx, ty, count, out);
+        return out;
+    }
+
+    /**
+     * @return moves from a node to the goal on an empty map.
+     */
+    private int estimate(int n) {
+        int x = n < graph.nodes ? graph.nodeX[n] : n == graph.nodes ? ax : bx;
+        int y = n < graph.nodes ? graph.nodeY[n] : n == graph.nodes ? ay : by;
+        return Math.max(Math.abs(bx - x), Math.abs(by - y));
+    }
+
+    /**
+     * Queue a node if this is the cheapest way to it so far.
+     */
+    private void reach(int n, int from, int g) {
+        if (stamp[n] == generation && cost[n] <= g) {
+            return;
+        }
+        stamp[n] = generation;
+        cost[n] = g;
+        parent[n] = from;
+        insert((long) (g + estimate(n)) << 32 | n);
+    }
+
+    /**
+     * Record the waypoints of the path to the goal: the start, each node
+     * that enters a new cluster, and the goal. Between neighboring clusters,
+     * the path from the start to the goal is left to refine() alone.
+     */
+    private void retrace() {
+        int startCluster = graph.cluster(ax, ay), goalCluster = graph.cluster(bx, by);
+        int count = 2;
+        if (Math.abs(startCluster % graph.columns - goalCluster % graph.columns) > 1
+                || Math.abs(startCluster / graph.columns - goalCluster / graph.columns) > 1) {
+            for (int n = parent[graph.nodes + 1]; n != graph.nodes; n = parent[n]) {
+                int from = parent[n] == graph.nodes ? startCluster : graph.nodeCluster[parent[n]];
+                if (graph.nodeCluster[n] != from) {
+                    count++;
+                }
+            }
+        }
+        if (waypointX.length < count) {
+            waypointX = new int[count];
+            waypointY = new int[count];
+        }
+        waypointX[0] = ax;
+        waypointY[0] = ay;
+        waypoints = count;
+        waypointX[--count] = bx;
+        waypointY[count] = by;
+        for (int n = parent[graph.nodes + 1]; count > 1; n = parent[n]) {
+            int from = parent[n] == graph.nodes ? startCluster : graph.nodeCluster[parent[n]];
+            if (graph.nodeCluster[n] != from) {
+                waypointX[--count] = graph.nodeX[n];
+                waypointY[count] = graph.nodeY[n];
+            }
+        }
+        if (waypoints > 2 && waypointX[waypoints - 2] == bx && waypointY[waypoints - 2] == by) {
+            waypoints--;    // The goal is where the path enters its cluster.
+        }
+    }
+
+    private void insert(long entry) {
+        if (size == open.length) {
+            open = Arrays.copyOf(open, size * 2);
+        }
+        int i = size++;
+        while (i > 0 && entry < open[(i - 1) / 2]) {
+            open[i] = open[(i - 1) / 2];
+            i = (i - 1) / 2;
+        }
+        open[i] = entry;
+    }
+
+    private void remove() {
+        long entry = open[--size];
+        int i = 0;
+        for (int child = 1; child < size; child = 2 * i + 1) {
+            if (child + 1 < size && open[child + 1] < open[child]) {
+                child++;
+            }
+            if (open[child] >= entry) {
+                break;
+            }
+            open[i] = open[child];
+            i = child;
+        }
+        open[i] = entry;
+    }
+}
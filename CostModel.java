@@ -0,0 +1,109 @@
+package bytecodeNav;
+
+/**
+ * Costs of moves, in fixed point. Straight moves cost straight and diagonal
+ * moves cost diagonal, so octile movement, where a diagonal move costs
+ * sqrt(2) times a straight one, is approximated by e.g. 5/7 or 70/99 with
+ * exact integer arithmetic. estimate() is the matching heuristic: the cost of
+ * the cheapest walk on an empty map, which never overestimates.
+ *
+ * CHEBYSHEV, where every move costs 1, is what the rest of the package uses
+ * by default.
+ *
+ * withTerrain() weighs the terrain classes of a Map: a move into a square of
+ * class k costs its straight or diagonal cost times the weight of class k.
+ * The estimate is scaled by the lowest weight, so it stays admissible; e.g.
+ * OCTILE.withTerrain(2, 1, 5) makes roads (class 1) half as costly as plain
+ * terrain and swamps (class 2) two and a half times as costly.
+ *
+ * @author David
+ */
+public class CostModel {
+
+    public static final CostModel CHEBYSHEV = new CostModel(1, 1);
+    public static final CostModel OCTILE = new CostModel(5, 7);         // sqrt(2) ~ 1.4
+    public static final CostModel OCTILE_FINE = new CostModel(70, 99);  // sqrt(2) ~ 1.41429
+
+    final int straight, diagonal;   // Cost of a straight move and of a diagonal move.
+    final int[] weights;    // Weight of each terrain class from 0; later classes weigh as much as class 0.
+    final int minWeight;    // Lowest weight of any class.
+    final boolean terrain;  // True if some class weighs other than 1.
+
+    /**
+     * Constructor.
+     * @param straight cost of a straight move.
+     * @param diagonal cost of a diagonal move, from straight to 2 * straight.
+     */
+    public CostModel(int straight, int diagonal) {
+        this(straight, diagonal, new int[] { 1 });
+    }
+
+    private CostModel(int straight, int diagonal, int[] weights) {
+        if (straight <= 0 || diagonal < straight || diagonal > 2 * straight) {
+            throw new IllegalArgumentException("Costs " + straight + "/" + diagonal);
+        }
+        int min = Integer.MAX_VALUE;
+        boolean weighted = false;
+        for (int w : weights) {
+            if (w <= 0) {
+                throw new IllegalArgumentException("Terrain weight " + w);
+            }
+            min = Math.min(min, w);
+            weighted |= w != 1;
+        }
+        this.straight = straight;
+        this.diagonal = diagonal;
+        this.weights = weights;
+        minWeight = min;
+        terrain = weighted;
+    }
+
+    /**
+     * @param classWeights weight of each terrain class, starting with plain
+     * terrain (class 0). Classes without a weight weigh as much as class 0.
+     * @return a model with the same move costs that weighs terrain classes.
+     */
+    public CostModel withTerrain(int... classWeights) {
+        if (classWeights.length == 0) {
+            throw new IllegalArgumentException("No weight for plain terrain");
+        }
+        return new CostModel(straight, diagonal, classWeights.clone());
+    }
+
+    /**
+     * @param terrainClass a terrain class of a Map.
+     * @return weight of the class.
+     */
+    public int weight(int terrainClass) {
+        return terrainClass < weights.length ? weights[terrainClass] : weights[0];
+    }
+
+    /**
+     * @return true if every move costs 1, so costs count moves.
+     */
+    public boolean isChebyshev() {
+        return straight == 1 && diagonal == 1 && !terrain;
+    }
+
+    /**
+     * @param dx x-distance.
+     * @param dy y-distance.
+     * @return cost of the cheapest walk over dx and dy on an empty map of the
+     * lightest terrain; the exact cost of a walk that is lined up straight or
+     * diagonally over terrain of that weight.
+     */
+    public int estimate(int dx, int dy) {
+        dx = Math.abs(dx);
+        dy = Math.abs(dy);
+        int min = Math.min(dx, dy);
+        return (diagonal * min + straight * (Math.max(dx, dy) - min)) * minWeight;
+    }
+
+    /**
+     * @param direction direction of a move (0 = N, 1 = NE, ... 7 = NW).
+     * @return cost of the move.
+     */
+    public int step(int direction) {
+        return (direction & 1) == 0 ? straight : diagonal;
+    }
+}
@@ -0,0 +1,45 @@
+package bytecodeNav;
+
+/**
+ * SearchBudget that counts the expansions and allocations charged to another
+ * SearchBudget.
+ *
+ * @author David
+ */
+public class CountingBudget implements SearchBudget {
+
+    final SearchBudget budget;  // Budget that decides when to suspend.
+    final SearchStats stats;    // Receives the counts.
+
+    /**
+     * Constructor.
+     * @param b budget to count.
+     * @param st counters to add to.
+     */
+    public CountingBudget(SearchBudget b, SearchStats st) {
+        budget = b;
+        stats = st;
+    }
+
+    public void begin() {
+        budget.begin();
+    }
+
+    public boolean hasRemaining() {
+        return budget.hasRemaining();
+    }
+
+    public boolean isLow() {
+        return budget.isLow();
+    }
+
+    public void expanded() {
+        stats.expansions++;
+        budget.expanded();
+    }
+
+    public void allocated() {
+        stats.allocations++;
+        budget.allocated();
+    }
+}
@@ -0,0 +1,42 @@
+package bytecodeNav;
+
+/**
+ * BitScan that counts the calls of each kind made to another BitScan.
+ *
+ * @author David
+ */
+public class CountingScan implements BitScan {
+
+    final BitScan scan;         // Scans to count.
+    final SearchStats stats;    // Receives the counts.
+
+    /**
+     * Constructor.
+     * @param s scans to count, e.g. a NavToolsScan.
+     * @param st counters to add to.
+     */
+    public CountingScan(BitScan s, SearchStats st) {
+        scan = s;
+        stats = st;
+    }
+
+    public int distanceLeft(int x, int y, long[][] map) {
+        stats.scans[SearchStats.LEFT]++;
+        return scan.distanceLeft(x, y, map);
+    }
+
+    public int distanceRight(int x, int y, long[][] map) {
+        stats.scans[SearchStats.RIGHT]++;
+        return scan.distanceRight(x, y, map);
+    }
+
+    public int distanceVoidLeft(int x, int y, long[][] map) {
+        stats.scans[SearchStats.VOID_LEFT]++;
+        return scan.distanceVoidLeft(x, y, map);
+    }
+
+    public int distanceVoidRight(int x, int y, long[][] map) {
+        stats.scans[SearchStats.VOID_RIGHT]++;
+        return scan.distanceVoidRight(x, y, map);
+    }
+}
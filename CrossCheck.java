@@ -0,0 +1,480 @@
+package bytecodeNav;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Checks the searches of the package against plain Dijkstra and BFS on random
+ * maps, so a change to any of them can be verified without benchmark files.
+ *
+ * Usage: CrossCheck [maps] [seed]
+ *
+ * Every map is a random size, off the 64-bit word boundaries, with random
+ * obstacles and terrain classes. On each map:
+ * - JPS+ must find a path of the cheapest cost in moves, also with GoalBounds
+ *   and when it searches from both ends;
+ * - JPS+ must find the cheapest path under octile costs, from one end and
+ *   from both;
+ * - JPS+ must find the cheapest path under octile costs weighted by terrain;
+ * - the jump point search that scans the map must find a walkable path
+ *   wherever there is one (its paths are not optimal);
+ * - a BatchSolver must find the same paths, several chunks at once;
+ * - a ClusterPlanner must find a path wherever there is one, and every
+ *   stretch it refines must be walkable (HPA* paths are not optimal);
+ * - a FlowField must hold the BFS distance of every square;
+ * - a PathSmoother must keep paths walkable, ending at the goal and no
+ *   longer than before, and must follow changes to the map;
+ * - a Replanner must plan paths of the cheapest cost, and still do so after
+ *   squares along its path are blocked and it repairs the plan.
+ * A path is walked with a PathCursor and must stay on walkable squares and
+ * end at the goal; its cost is summed from the moves walked. Moves and corner
+ * cutting follow the rest of the package: a move may enter any walkable
+ * neighbor.
+ *
+ * The first mismatch is printed and the check exits with status 1.
+ *
+ * @author David
+ */
+public class CrossCheck {
+
+    static final int QUERIES = 20;      // Queries per map and search.
+    static final int[] WEIGHTS = { 2, 1, 5 };   // Weight of each terrain class.
+
+    final Map map;
+    final Random random;
+    final PathCursor cursor = new PathCursor();
+    final ExpansionBudget budget = new ExpansionBudget(Integer.MAX_VALUE, 0);
+    int checked;        // Queries checked so far.
+
+    CrossCheck(Map map, Random random) {
+        this.map = map;
+        this.random = random;
+    }
+
+    public static void main(String[] args) {
+        int maps = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        Random random = new Random(seed);
+        int total = 0;
+        for (int m = 0; m < maps; m++) {
+            CrossCheck check = new CrossCheck(randomMap(random), random);
+            String failure = check.run();
+            total += check.checked;
+            if (failure != null) {
+                System.out.println("map " + m + " (seed " + seed + ", " + check.map.width + "x"
+                        + check.map.height + "): " + failure);
+                System.exit(1);
+            }
+        }
+        System.out.println(maps + " maps, " + total + " queries: all match");
+    }
+
+    /**
+     * @return a map of random size and density.
+     */
+    static Map randomMap(Random random) {
+        int width = 16 + random.nextInt(100), height = 16 + random.nextInt(100);
+        Map map = new Map(0, 0, width, height);
+        double density = 0.1 + random.nextDouble() * 0.3;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double r = random.nextDouble();
+                if (r < density) {
+                    map.setBlocked(x, y);
+                } else if (r < density + 0.1) {
+                    map.setTerrain(x, y, 1 + random.nextInt(WEIGHTS.length - 1));
+                }
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Run every check on this map.
+     * @return a description of the first mismatch, or null.
+     */
+    String run() {
+        JumpTable table = JumpTable.build(map);
+        GoalBounds bounds = GoalBounds.build(map);
+        String failure = null;
+        failure = failure != null ? failure
+                : checkContext("JPS+", new SearchContext(table, budget), CostModel.CHEBYSHEV);
+        failure = failure != null ? failure
+                : checkContext("bounded JPS+", new SearchContext(table, bounds, budget), CostModel.CHEBYSHEV);
+        failure = failure != null ? failure
+                : checkContext("bidirectional JPS+", new SearchContext(table, null, budget, true), CostModel.CHEBYSHEV);
+        for (CostModel cost : new CostModel[] { CostModel.OCTILE, CostModel.OCTILE_FINE }) {
+            failure = failure != null ? failure
+                    : checkContext("octile JPS+", new SearchContext(table, null, budget, false, cost), cost);
+            failure = failure != null ? failure
+                    : checkContext("octile bidirectional JPS+", new SearchContext(table, null, budget, true, cost), cost);
+        }
+        CostModel terrain = CostModel.OCTILE.withTerrain(WEIGHTS);
+        failure = failure != null ? failure
+                : checkContext("JPS+ terrain", new SearchContext(table, null, budget, false, terrain), terrain);
+        failure = failure != null ? failure : checkScan();
+        failure = failure != null ? failure : checkBatch(table);
+        failure = failure != null ? failure : checkClusters(table);
+        failure = failure != null ? failure : checkFlowField();
+
+        // Last, since these change the map under the jump table.
+        failure = failure != null ? failure : checkSmoother(table);
+        failure = failure != null ? failure : checkReplanner(CostModel.CHEBYSHEV);
+        failure = failure != null ? failure : checkReplanner(terrain);
+        return failure;
+    }
+
+    /**
+     * Compare the paths of a SearchContext with Dijkstra.
+     */
+    String checkContext(String name, SearchContext context, CostModel cost) {
+        for (int q = 0; q < QUERIES; q++) {
+            int a = randomSquare(), b = randomSquare();
+            int[] dist = dijkstra(b, cost);
+            int path = context.getPath(a % map.width, a / map.width, b % map.width, b / map.width);
+            long walked = context.reachedGoal() ? walk(context.getNodes(), path, b, cost) : -1;
+            checked++;
+            if (walked != dist[a]) {
+                return name + ": " + query(a, b) + " cost " + walked + ", Dijkstra " + dist[a];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check that smoothed paths are walkable, end at the goal and cost no
+     * more than the paths they were smoothed from, under Chebyshev and
+     * octile costs. Then block random squares, and clear them again, and
+     * check walkable() against a walk one square at a time after each
+     * change, on diagonal walks through the changed squares.
+     */
+    String checkSmoother(JumpTable table) {
+        PathSmoother smoother = new PathSmoother(map);
+        for (CostModel cost : new CostModel[] { CostModel.CHEBYSHEV, CostModel.OCTILE }) {
+            SearchContext context = new SearchContext(table, null, budget, false, cost);
+            for (int q = 0; q < QUERIES; q++) {
+                int a = randomSquare(), b = randomSquare();
+                int path = context.getPath(a % map.width, a / map.width, b % map.width, b / map.width);
+                if (!context.reachedGoal()) {
+                    continue;
+                }
+                long walked = walk(context.getNodes(), path, b, cost);
+                long smoothed = walk(context.getNodes(), smoother.smooth(context.getNodes(), path), b, cost);
+                checked++;
+                if (smoothed < 0 || smoothed > walked) {
+                    return "PathSmoother: " + query(a, b) + " cost " + smoothed + ", unsmoothed " + walked;
+                }
+            }
+        }
+        int[] cells = new int[QUERIES];
+        for (int k = 0; k < cells.length; k++) {
+            cells[k] = randomSquare();
+        }
+        for (int round = 0; round < 2; round++) {
+            map.applyUpdates(cells);
+            for (int k = 0; k < cells.length; k++) {
+                cells[k] = ~cells[k];
+            }
+            for (int q = 0; q < QUERIES * 5; q++) {
+                // A diagonal walk through a changed square.
+                int cell = cells[q % cells.length] < 0 ? ~cells[q % cells.length] : cells[q % cells.length];
+                int sx = random.nextBoolean() ? 1 : -1, sy = random.nextBoolean() ? 1 : -1;
+                int k = 1 + random.nextInt(8), j = random.nextInt(8);
+                int ax = cell % map.width - sx * k, ay = cell / map.width - sy * k;
+                int bx = cell % map.width + sx * j, by = cell / map.width + sy * j;
+                if (ax < 0 || ay < 0 || bx < 0 || by < 0 || ax >= map.width || bx >= map.width
+                        || ay >= map.height || by >= map.height) {
+                    continue;
+                }
+                checked++;
+                if (smoother.walkable(ax, ay, bx, by) != walkable(ax, ay, bx, by)) {
+                    return "PathSmoother: walk " + query(ay * map.width + ax, by * map.width + bx)
+                            + (walkable(ax, ay, bx, by) ? " is clear" : " is blocked")
+                            + (round == 0 ? " after blocking squares" : " after clearing them");
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return true if a walk from (ax,ay) to (bx,by), diagonally first and
+     * then straight, only steps on walkable squares.
+     */
+    boolean walkable(int ax, int ay, int bx, int by) {
+        while (ax != bx || ay != by) {
+            ax += Integer.signum(bx - ax);
+            ay += Integer.signum(by - ay);
+            if (map.isBlocked(ax, ay)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compare the plans of a Replanner with Dijkstra, before and after
+     * squares along its path are blocked. The squares are cleared again
+     * afterwards.
+     */
+    String checkReplanner(CostModel cost) {
+        Replanner planner = new Replanner(map, budget, cost);
+        for (int q = 0; q < QUERIES; q++) {
+            int a = randomSquare(), b = randomSquare();
+            int path = planner.getPath(a % map.width, a / map.width, b % map.width, b / map.width);
+            int[] dist = dijkstra(b, cost);
+            long walked = planner.reachedGoal() ? walk(planner.getNodes(), path, b, cost) : -1;
+            checked++;
+            if (walked != dist[a]) {
+                return "Replanner: " + query(a, b) + " cost " + walked + ", Dijkstra " + dist[a];
+            }
+            if (walked < 0) {
+                continue;
+            }
+
+            // Block up to three squares of the path between its ends, and repair.
+            int[] blocked = new int[3];
+            int count = 0;
+            cursor.reset(planner.getNodes(), path);
+            while (cursor.hasNext() && count < blocked.length) {
+                cursor.next();
+                int cell = cursor.getY() * map.width + cursor.getX();
+                if (cell != b && random.nextInt(4) == 0) {
+                    blocked[count++] = cell;
+                }
+            }
+            blocked = Arrays.copyOf(blocked, count);
+            map.applyUpdates(blocked);
+            path = planner.getPath(a % map.width, a / map.width, b % map.width, b / map.width);
+            dist = dijkstra(b, cost);
+            walked = planner.reachedGoal() ? walk(planner.getNodes(), path, b, cost) : -1;
+            for (int k = 0; k < count; k++) {
+                blocked[k] = ~blocked[k];
+            }
+            map.applyUpdates(blocked);
+            checked++;
+            if (walked != dist[a]) {
+                return "Replanner repair: " + query(a, b) + " cost " + walked + ", Dijkstra " + dist[a];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check that the jump point search that scans the map finds a walkable
+     * path wherever Dijkstra finds one.
+     */
+    String checkScan() {
+        SearchContext context = new SearchContext(map, budget, new IntrinsicScan());
+        for (int q = 0; q < QUERIES; q++) {
+            int a = randomSquare(), b = randomSquare();
+            int[] dist = dijkstra(b, CostModel.CHEBYSHEV);
+            int path = context.getPath(a % map.width, a / map.width, b % map.width, b / map.width);
+            long walked = context.reachedGoal() ? walk(context.getNodes(), path, b, CostModel.CHEBYSHEV) : -1;
+            checked++;
+            if ((walked >= 0) != (dist[a] >= 0) || (context.reachedGoal() && walked < 0)) {
+                return "scan JPS: " + query(a, b) + " cost " + walked + ", Dijkstra " + dist[a];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compare the paths of a BatchSolver on four threads with Dijkstra. The
+     * batch has a few goals and many starts, so that it spans several
+     * chunks, and is solved twice so that the second batch reuses the
+     * workers of the first.
+     */
+    String checkBatch(JumpTable table) {
+        int goals = 4, queries = 4 * BatchSolver.CHUNK;
+        int[] starts = new int[queries * 2], ends = new int[queries * 2];
+        int[] from = new int[queries], to = new int[queries];
+        int[][] dist = new int[goals][];
+        for (int g = 0; g < goals; g++) {
+            int b = randomSquare();
+            dist[g] = dijkstra(b, CostModel.CHEBYSHEV);
+            for (int i = g; i < queries; i += goals) {
+                from[i] = randomSquare();
+                to[i] = b;
+                starts[i * 2] = from[i] % map.width;
+                starts[i * 2 + 1] = from[i] / map.width;
+                ends[i * 2] = b % map.width;
+                ends[i * 2 + 1] = b / map.width;
+            }
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        PathBatch paths;
+        try {
+            BatchSolver solver = new BatchSolver(() -> new SearchContext(table, budget()), pool);
+            solver.solve(ends, starts);
+            paths = solver.solve(starts, ends);
+        } finally {
+            pool.shutdown();
+        }
+        for (int i = 0; i < queries; i++) {
+            long cost = paths.length(i) > 0 ? walk(paths, i, from[i], to[i]) : -1;
+            checked++;
+            if (cost != dist[i % goals][from[i]]) {
+                return "BatchSolver: " + query(from[i], to[i]) + " cost " + cost
+                        + ", Dijkstra " + dist[i % goals][from[i]];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Walk a path of a PathBatch, whose waypoints must be lined up straight
+     * or diagonally, and count its moves.
+     * @return moves of the path, or -1 if it leaves the walkable squares or
+     * does not run from start to goal.
+     */
+    long walk(PathBatch paths, int i, int start, int goal) {
+        int x = paths.x(i, 0), y = paths.y(i, 0);
+        if (y * map.width + x != start) {
+            return -1;
+        }
+        long moves = 0;
+        for (int k = 1; k < paths.length(i); k++) {
+            int dx = paths.x(i, k) - x, dy = paths.y(i, k) - y;
+            if (dx != 0 && dy != 0 && Math.abs(dx) != Math.abs(dy)) {
+                return -1;
+            }
+            for (int step = Math.max(Math.abs(dx), Math.abs(dy)); step > 0; step--) {
+                x += Integer.signum(dx);
+                y += Integer.signum(dy);
+                if (map.isBlocked(x, y)) {
+                    return -1;
+                }
+                moves++;
+            }
+        }
+        return y * map.width + x == goal ? moves : -1;
+    }
+
+    /**
+     * @return a budget that never runs out, for a context of its own.
+     */
+    static ExpansionBudget budget() {
+        return new ExpansionBudget(Integer.MAX_VALUE, 0);
+    }
+
+    /**
+     * Check that a ClusterPlanner finds a walkable path wherever Dijkstra
+     * finds one.
+     */
+    String checkClusters(JumpTable table) {
+        ClusterPlanner planner = new ClusterPlanner(ClusterGraph.build(map), new SearchContext(table, budget));
+        for (int q = 0; q < QUERIES; q++) {
+            int a = randomSquare(), b = randomSquare();
+            int[] dist = dijkstra(b, CostModel.CHEBYSHEV);
+            boolean found = planner.plan(a % map.width, a / map.width, b % map.width, b / map.width);
+            checked++;
+            if (found != (dist[a] >= 0)) {
+                return "ClusterPlanner: " + query(a, b) + (found ? " found a path" : " found no path")
+                        + ", Dijkstra " + dist[a];
+            }
+            for (int k = 0; found && k + 1 < planner.waypoints(); k++) {
+                int path = planner.refine(k);
+                int to = planner.getWaypointY(k + 1) * map.width + planner.getWaypointX(k + 1);
+                if (!planner.context.reachedGoal()
+                        || walk(planner.context.getNodes(), path, to, CostModel.CHEBYSHEV) < 0) {
+                    return "ClusterPlanner: " + query(a, b) + " stretch " + k + " is not walkable";
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compare the distances of FlowFields with BFS.
+     */
+    String checkFlowField() {
+        for (int q = 0; q < QUERIES / 4; q++) {
+            int b = randomSquare();
+            FlowField field = FlowField.build(map, b % map.width, b / map.width);
+            int[] dist = dijkstra(b, CostModel.CHEBYSHEV);    // Every move costs 1: BFS.
+            checked++;
+            for (int u = 0; u < dist.length; u++) {
+                int d = map.isBlocked(u % map.width, u / map.width) ? -1 : dist[u];
+                if (field.distance(u % map.width, u / map.width) != d) {
+                    return "FlowField: " + query(u, b) + " distance "
+                            + field.distance(u % map.width, u / map.width) + ", BFS " + d;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Walk a path and sum the costs of its moves.
+     * @param start first node of the path.
+     * @param goal y * width + x of the square the path must end at.
+     * @return cost of the path, or -1 if it leaves the walkable squares or
+     * does not end at the goal.
+     */
+    long walk(NodeArena nodes, int start, int goal, CostModel cost) {
+        long sum = 0;
+        cursor.reset(nodes, start);
+        int x = nodes.x[start], y = nodes.y[start];
+        while (cursor.hasNext()) {
+            int dir = cursor.next();
+            x = cursor.getX();
+            y = cursor.getY();
+            if (x < 0 || y < 0 || x >= map.width || y >= map.height || map.isBlocked(x, y)) {
+                return -1;
+            }
+            sum += cost.step(dir) * cost.weight(map.terrain(x, y));
+        }
+        return y * map.width + x == goal ? sum : -1;
+    }
+
+    /**
+     * Dijkstra backward from a goal, over moves into any walkable neighbor.
+     * @param goal y * width + x of the goal.
+     * @return cost from every square to the goal, or -1 where it cannot be
+     * reached.
+     */
+    int[] dijkstra(int goal, CostModel cost) {
+        int width = map.width, height = map.height;
+        int[] dist = new int[width * height];
+        Arrays.fill(dist, -1);
+        PriorityQueue<long[]> open = new PriorityQueue<long[]>((p, q) -> Long.compare(p[0], q[0]));
+        open.add(new long[] { 0, goal });
+        while (!open.isEmpty()) {
+            long[] top = open.poll();
+            int u = (int) top[1];
+            if (dist[u] >= 0) {
+                continue;
+            }
+            dist[u] = (int) top[0];
+            int ux = u % width, uy = u / width;
+            for (int dir = 0; dir < 8; dir++) {
+                int px = ux - JumpTable.DX[dir], py = uy - JumpTable.DY[dir];   // Moves to u in dir.
+                if (px >= 0 && py >= 0 && px < width && py < height && !map.isBlocked(px, py)
+                        && dist[py * width + px] < 0) {
+                    long step = cost.step(dir) * cost.weight(map.terrain(ux, uy));
+                    open.add(new long[] { top[0] + step, py * width + px });
+                }
+            }
+        }
+        return dist;
+    }
+
+    /**
+     * @return y * width + x of a random walkable square.
+     */
+    int randomSquare() {
+        int x, y;
+        do {
+            x = random.nextInt(map.width);
+            y = random.nextInt(map.height);
+        } while (map.isBlocked(x, y));
+        return y * map.width + x;
+    }
+
+    String query(int a, int b) {
+        return "(" + a % map.width + "," + a / map.width + ") to (" + b % map.width + "," + b / map.width + ")";
+    }
+}
@@ -0,0 +1,47 @@
+package bytecodeNav;
+
+/**
+ * Budget measured in node expansions per slice.
+ *
+ * @author David
+ */
+public class ExpansionBudget implements SearchBudget {
+
+    final int expansions, slack;
+    int left;           // Expansions left in the current slice.
+
+    /**
+     * Constructor.
+     * @param expansions nodes that may be expanded per slice.
+     * @param slack expansions left at which a partial path is returned.
+     */
+    public ExpansionBudget(int expansions, int slack) {
+        this.expansions = expansions;
+        this.slack = slack;
+    }
+
+    public void begin() {
+        left = expansions;
+    }
+
+    public boolean hasRemaining() {
+        return left > 0;
+    }
+
+    public boolean isLow() {
+        return left < slack;
+    }
+
+    public void expanded() {
+        left--;
+    }
+
+    public void allocated() {}
+
+    /**
+     * @return nodes expanded so far in the current slice.
+     */
+    public int used() {
+        return expansions - left;
+    }
+}
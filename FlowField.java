@@ -0,0 +1,240 @@
+package bytecodeNav;
+
+import java.util.Arrays;
+
+/**
+ * Distances and first moves from every square of a map to one goal, e.g. for
+ * many robots rallying to the same location. A FlowField never changes once
+ * built, so any number of robots may read it at once; direction() gives the
+ * next move of a robot in O(1).
+ *
+ * The field is built by a breadth-first search that works on whole rows of
+ * bits: each layer of squares one move further from the goal is found with
+ * shifts, ANDs and ORs of the previous layer's longs, and only the longs next
+ * to the previous layer are visited. Moves and corner cutting follow the
+ * rest of the package, so every move costs 1.
+ *
+ * @author David
+ */
+public class FlowField {
+
+    // Directions tried for a square's first move, diagonals first.
+    static final int[] ORDER = { 1, 3, 5, 7, 0, 2, 4, 6 };
+
+    final int width, height;    // Size of the map.
+    final int goalX, goalY;     // Goal of every path.
+    private final int[] distance;       // Moves to the goal, or -1 if unreachable.
+    private final byte[] direction;     // First move toward the goal, or -1.
+
+    private FlowField(int width, int height, int goalX, int goalY) {
+        this.width = width;
+        this.height = height;
+        this.goalX = goalX;
+        this.goalY = goalY;
+        distance = new int[width * height];
+        direction = new byte[width * height];
+        Arrays.fill(distance, -1);
+        Arrays.fill(direction, (byte) -1);
+    }
+
+    /**
+     * @param x map x-coordinate.
+     * @param y map y-coordinate.
+     * @return number of moves from (x,y) to the goal, or -1 if the goal cannot
+     * be reached from (x,y).
+     */
+    public int distance(int x, int y) {
+        return distance[y * width + x];
+    }
+
+    /**
+     * @param x map x-coordinate.
+     * @param y map y-coordinate.
+     * @return direction of the first move of a shortest path from (x,y) to the
+     * goal (0 = N, 1 = NE, ... 7 = NW, as in Navigation), or -1 at the goal and
+     * where the goal cannot be reached.
+     */
+    public int direction(int x, int y) {
+        return direction[y * width + x];
+    }
+
+    /**
+     * Build the field of a goal.
+     * @param map map to search.
+     * @param goalX x-coordinate of the goal.
+     * @param goalY y-coordinate of the goal.
+     * @return the field.
+     */
+    public static FlowField build(Map map, int goalX, int goalY) {
+        if (goalX < 0 || goalY < 0 || goalX >= map.width || goalY >= map.height || map.isBlocked(goalX, goalY)) {
+            throw new IllegalArgumentException("Goal (" + goalX + "," + goalY + ") is not walkable");
+        }
+        FlowField field = new FlowField(map.width, map.height, goalX, goalY);
+        int width = map.width, height = map.height;
+        int words = (width + 63) / 64;
+
+        // Bits of walkable squares that are not in a layer yet.
+        long[][] open = new long[height][words];
+        for (int y = 0; y < height; y++) {
+            if (map.mapX != null) {
+                for (int w = 0; w < words; w++) {
+                    open[y][w] = ~map.mapX[y][w];
+                }
+            } else {
+                for (int x = 0; x < width; x++) {
+                    if (!map.isBlocked(x, y)) {
+                        open[y][x / 64] |= 1L << (63 - (x % 64));
+                    }
+                }
+            }
+        }
+
+        // Layers of squares, and which of their longs have bits set: bit (w % 64)
+        // of occupied[y][w / 64] is set if layer[y][w] != 0.
+        int groups = (words + 63) / 64;
+        long[][] layer = new long[height][words];   // Squares d - 1 moves from the goal.
+        long[][] next = new long[height][words];    // Squares d moves from the goal.
+        long[][] occupied = new long[height][groups];
+        long[][] nextOccupied = new long[height][groups];
+        long[][] spread = new long[height][words];  // Layer spread one square left and right,
+        long[][] spreadWords = new long[height][groups];    // in these longs of each row.
+        long[] visit = new long[groups];            // Longs of a row to visit.
+
+        layer[goalY][goalX / 64] = 1L << (63 - (goalX % 64));
+        occupied[goalY][goalX / 64 / 64] = 1L << (goalX / 64);
+        open[goalY][goalX / 64] &= ~layer[goalY][goalX / 64];
+        field.distance[goalY * width + goalX] = 0;
+        int top = goalY, bottom = goalY;    // First and last rows of the layer with bits set.
+
+        for (int d = 1; top <= bottom; d++) {
+            for (int y = top; y <= bottom; y++) {
+                long[] row = layer[y];
+                widen(occupied[y], spreadWords[y]);
+                for (int g = 0; g < groups; g++) {
+                    for (long bits = spreadWords[y][g]; bits != 0; bits &= bits - 1) {
+                        int w = g * 64 + Long.numberOfTrailingZeros(bits);
+                        if (w < words) {
+                            spread[y][w] = row[w] | left(row, w) | right(row, w);
+                        }
+                    }
+                }
+            }
+
+            // The next layer: open squares next to the layer's spread.
+            int first = Math.max(0, top - 1), last = Math.min(height - 1, bottom + 1);
+            int nextTop = height, nextBottom = -1;
+            for (int y = first; y <= last; y++) {
+                boolean above = y - 1 >= top, here = y >= top && y <= bottom, below = y + 1 <= bottom;
+                for (int g = 0; g < groups; g++) {
+                    visit[g] = (above ? spreadWords[y - 1][g] : 0) | (here ? spreadWords[y][g] : 0)
+                            | (below ? spreadWords[y + 1][g] : 0);
+                }
+                long[] row = next[y];
+                for (int g = 0; g < groups; g++) {
+                    for (long v = visit[g]; v != 0; v &= v - 1) {
+                        int bit = Long.numberOfTrailingZeros(v);
+                        int w = g * 64 + bit;
+                        if (w >= words) {
+                            break;
+                        }
+                        long bits = 0;
+                        if (above && (spreadWords[y - 1][g] & (1L << bit)) != 0) {
+                            bits |= spread[y - 1][w];
+                        }
+                        if (here && (spreadWords[y][g] & (1L << bit)) != 0) {
+                            bits |= spread[y][w];
+                        }
+                        if (below && (spreadWords[y + 1][g] & (1L << bit)) != 0) {
+                            bits |= spread[y + 1][w];
+                        }
+                        bits &= open[y][w];
+                        if (bits != 0) {
+                            row[w] = bits;
+                            nextOccupied[y][g] |= 1L << bit;
+                            open[y][w] &= ~bits;
+                            field.record(layer, top, bottom, y, w, bits, d);
+                            nextTop = Math.min(nextTop, y);
+                            nextBottom = y;
+                        }
+                    }
+                }
+            }
+
+            // The next layer becomes the layer; clear the old layer for reuse.
+            for (int y = top; y <= bottom; y++) {
+                for (int g = 0; g < groups; g++) {
+                    for (long bits = occupied[y][g]; bits != 0; bits &= bits - 1) {
+                        layer[y][g * 64 + Long.numberOfTrailingZeros(bits)] = 0;
+                    }
+                    occupied[y][g] = 0;
+                }
+            }
+            long[][] swap = layer;
+            layer = next;
+            next = swap;
+            swap = occupied;
+            occupied = nextOccupied;
+            nextOccupied = swap;
+            top = nextTop;
+            bottom = nextBottom;
+        }
+        return field;
+    }
+
+    /**
+     * Record the distance and first move of new squares of a layer.
+     * @param layer previous layer, with bits only in rows top to bottom.
+     * @param y row of the new squares.
+     * @param w index of their long in the row.
+     * @param bits the new squares.
+     * @param d their distance from the goal.
+     */
+    private void record(long[][] layer, int top, int bottom, int y, int w, long bits, int d) {
+        for (int i = 0; i < 8 && bits != 0; i++) {
+            int dir = ORDER[i];
+            int r = y + JumpTable.DY[dir];
+            if (r < top || r > bottom) {
+                continue;
+            }
+            long[] row = layer[r];
+            long toward = JumpTable.DX[dir] == 0 ? row[w]     // Bit of each square set if its
+                    : JumpTable.DX[dir] > 0 ? left(row, w)      // neighbor in dir is in the layer.
+                    : right(row, w);
+            long moved = bits & toward;
+            bits &= ~moved;
+            while (moved != 0) {
+                int bit = Long.numberOfTrailingZeros(moved);
+                int index = y * width + w * 64 + 63 - bit;
+                distance[index] = d;
+                direction[index] = (byte) dir;
+                moved &= moved - 1;
+            }
+        }
+    }
+
+    /**
+     * Mark the longs next to marked longs, since bits spread into them.
+     * @param words bit (w % 64) of words[w / 64] is set for long w.
+     * @param out words with their neighbors.
+     */
+    private static void widen(long[] words, long[] out) {
+        for (int g = 0; g < words.length; g++) {
+            out[g] = words[g] | words[g] << 1 | words[g] >>> 1
+                    | (g > 0 ? words[g - 1] >>> 63 : 0) | (g + 1 < words.length ? words[g + 1] << 63 : 0);
+        }
+    }
+
+    /**
+     * @return long w of a row with every bit moved one square to the left.
+     */
+    private static long left(long[] row, int w) {
+        return (row[w] << 1) | (w + 1 < row.length ? row[w + 1] >>> 63 : 0);
+    }
+
+    /**
+     * @return long w of a row with every bit moved one square to the right.
+     */
+    private static long right(long[] row, int w) {
+        return (row[w] >>> 1) | (w > 0 ? row[w - 1] << 63 : 0);
+    }
+}
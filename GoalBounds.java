@@ -0,0 +1,177 @@
+package bytecodeNav;
+
+import java.util.stream.IntStream;
+
+/**
+ * Goal bounding boxes for JPS+. For every walkable square and each of the 8
+ * directions, the box holds every square that an optimal path from the square
+ * may reach by first moving in that direction. If the goal is outside of the
+ * box, a search does not need to look in that direction at all.
+ *
+ * Boxes are found with a breadth-first search from every walkable square that
+ * records which first moves reach each square in the fewest moves, so
+ * preprocessing takes time proportional to the square of the number of
+ * squares. Searches from the squares of each row run in parallel. Each box
+ * takes two ints, so maps are limited to 65535x65535.
+ *
+ * @author David
+ */
+public class GoalBounds {
+
+    final Map map;              // Map the boxes were built from.
+    final int width, height;    // Size of the map.
+    final int version;          // Map.version() when the boxes were built.
+    final int[] boxes;          // (y * width + x) * 16 + direction * 2: minX | minY << 16, then maxX | maxY << 16.
+
+    private GoalBounds(Map map) {
+        if (map.width > 65535 || map.height > 65535) {
+            throw new IllegalArgumentException("Map size " + map.width + "x" + map.height);
+        }
+        this.map = map;
+        width = map.width;
+        height = map.height;
+        version = map.version();
+        boxes = new int[width * height * 16];
+    }
+
+    /**
+     * Build the boxes of a map.
+     * @param map map to preprocess. Must not change while the boxes are built.
+     * @return the boxes.
+     */
+    public static GoalBounds build(Map map) {
+        final GoalBounds bounds = new GoalBounds(map);
+        IntStream.range(0, bounds.height).parallel().forEach(bounds::buildRow);
+        return bounds;
+    }
+
+    /**
+     * @param x map x-coordinate.
+     * @param y map y-coordinate.
+     * @param direction first move from (x,y).
+     * @param goalX x-coordinate of the goal.
+     * @param goalY y-coordinate of the goal.
+     * @return false if no optimal path from (x,y) to the goal starts with the
+     * move.
+     */
+    public boolean contains(int x, int y, int direction, int goalX, int goalY) {
+        int i = (y * width + x) * 16 + direction * 2;
+        int min = boxes[i];
+        int max = boxes[i + 1];
+        return goalX >= (min & 0xFFFF) && goalX <= (max & 0xFFFF)
+                && goalY >= (min >>> 16) && goalY <= (max >>> 16);
+    }
+
+    /**
+     * @return true if the boxes still match their map.
+     */
+    public boolean isCurrent() {
+        return map.version() == version;
+    }
+
+    /**
+     * Build the boxes of the squares of one row.
+     * @param y row of the squares.
+     */
+    private void buildRow(int y) {
+        Search search = new Search();
+        for (int x = 0; x < width; x++) {
+            if (!map.isBlocked(x, y)) {
+                int[] box = search.run(x, y);
+                int i = (y * width + x) * 16;
+                for (int d = 0; d < 8; d++) {
+                    boxes[i + d * 2] = box[d * 4] | box[d * 4 + 2] << 16;
+                    boxes[i + d * 2 + 1] = box[d * 4 + 1] | box[d * 4 + 3] << 16;
+                }
+            }
+        }
+    }
+
+    /**
+     * Breadth-first search over a copy of the map framed by non-walkable
+     * squares, so that neighbors are found without bounds checks. A Search is
+     * reused for every square of a row; stamps tell its searches apart.
+     */
+    class Search {
+
+        final int stride = width + 2;           // Squares in a row of the framed map.
+        final boolean[] walkable = new boolean[stride * (height + 2)];
+        final int[] offset = new int[8];        // Index step of each direction.
+        final int[] stamp;                      // Search that last reached each square.
+        final int[] distance;                   // Moves from the start of that search.
+        final byte[] firstMoves;                // Bit d is set if a shortest path starts with move d.
+        final int[] queue;
+        final int[] box = new int[32];          // minX, maxX, minY, maxY of each direction.
+        int current;                            // Stamp of the current search.
+
+        Search() {
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    walkable[(y + 1) * stride + x + 1] = !map.isBlocked(x, y);
+                }
+            }
+            for (int d = 0; d < 8; d++) {
+                offset[d] = JumpTable.DY[d] * stride + JumpTable.DX[d];
+            }
+            stamp = new int[walkable.length];
+            distance = new int[walkable.length];
+            firstMoves = new byte[walkable.length];
+            queue = new int[walkable.length];
+        }
+
+        /**
+         * Search from one square.
+         * @return the boxes of the square; empty boxes have their minimums
+         * above their maximums.
+         */
+        int[] run(int startX, int startY) {
+            for (int d = 0; d < 8; d++) {
+                box[d * 4] = 0xFFFF;
+                box[d * 4 + 1] = 0;
+                box[d * 4 + 2] = 0xFFFF;
+                box[d * 4 + 3] = 0;
+            }
+            current++;
+            int start = (startY + 1) * stride + startX + 1;
+            stamp[start] = current;
+            distance[start] = 0;
+            int head = 0, tail = 0;
+            queue[tail++] = start;
+            while (head < tail) {
+                int square = queue[head++];
+                int moves = firstMoves[square] & 0xFF;
+                if (square != start) {
+                    // Every first move that reaches this square in the fewest moves.
+                    int x = square % stride - 1;
+                    int y = square / stride - 1;
+                    for (int d = 0; d < 8; d++) {
+                        if ((moves & (1 << d)) != 0) {
+                            box[d * 4] = Math.min(box[d * 4], x);
+                            box[d * 4 + 1] = Math.max(box[d * 4 + 1], x);
+                            box[d * 4 + 2] = Math.min(box[d * 4 + 2], y);
+                            box[d * 4 + 3] = Math.max(box[d * 4 + 3], y);
+                        }
+                    }
+                }
+
+                int moved = distance[square] + 1;
+                for (int d = 0; d < 8; d++) {
+                    int next = square + offset[d];
+                    if (!walkable[next]) {
+                        continue;
+                    }
+                    int through = square == start ? 1 << d : moves;
+                    if (stamp[next] != current) {
+                        stamp[next] = current;
+                        distance[next] = moved;
+                        firstMoves[next] = (byte) through;
+                        queue[tail++] = next;
+                    } else if (distance[next] == moved) {
+                        firstMoves[next] |= through;
+                    }
+                }
+            }
+            return box;
+        }
+    }
+}
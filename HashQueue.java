@@ -1,206 +1,490 @@
 package bytecodeNav;
 
+import java.util.Arrays;
+
 /**
+ * Bucket queue for jump point search. Scores are split into buckets as wide as
+ * the cheapest move, each holding a linked list of nodes, and a two-level
+ * bitmap of the buckets in use finds the best bucket with two or three bit
+ * scans instead of a scan over the buckets. With every move costing 1 there is
+ * a bucket per score; with fixed-point costs (see CostModel) a bucket holds
+ * several scores and keeps its list in order of score, so the bucket count
+ * follows the length of the path and not the scale of the costs.
+ * 
+ * A bucket's entry in points is only valid while its bit in occupied is set, so
+ * buckets never need to be cleared. A queue is reused for the next search with
+ * reset(), which clears only what the last search used.
+ *
+ * The jump point search only searches diagonally, so visited locations are
+ * held in four bitplanes, one per diagonal, laid out like the rows of
+ * Map.mapX: 4 bits per square instead of an int, reset() clears whole rows
+ * of longs, and whole runs of a row can be checked at once (see
+ * anyUnvisited()). A location searched in one direction may be searched once
+ * more in another direction; after that it is closed.
  *
  * @author david
  */
 public class HashQueue {
 
     
-    JumpPoint[] points;     // Array used to store this heap's nodes.
+    final NodeArena nodes;  // Storage of this queue's nodes.
+    int[] points;           // Array used to store the first node of each bucket.
+    long[] occupied;        // Bit (i % 64) of occupied[i / 64] is set if bucket i is in use.
+    long[] summary;         // Bit (j % 64) of summary[j / 64] is set if occupied[j] != 0.
     
     // Coordinates of the goal.
     int goalX,goalY;
-    int[] visited;          // Record of locations that have been visited.
+    final int width, height;    // Size of the map searched.
+    final int words;        // Longs in a row of a bitplane.
+    final long[][] visited; // visited[d / 2][y * words + x / 64], bit 63 - x % 64: searched in diagonal d.
+    final long[] dirty;     // Bit (y % 64) of dirty[y / 64] is set if row y has bits in visited.
     
     int size;               // Size of this heap.
-    int bestScore;          // Best possible score
+    SearchStats stats;      // Counters of this queue's work, or null to count nothing.
+    int bestKey;            // Best possible bucket.
+    final CostModel cost;   // Costs of moves; scores are in these units.
+    final int unit;         // Width of a bucket: the cost of the cheapest move.
     
     /**
-     * Constructor. Creates four JumpPoint objects and prioritizes them based on
+     * Constructor for a search of a 256x256 map.
+     * @param arena storage for the nodes of this queue.
+     * @param start start coordinates.
+     * @param g end coordinates.
+     */
+    public HashQueue(NodeArena arena, int startX, int startY, int goal_X, int goal_Y) {
+        this(arena, 256, 256, startX, startY, goal_X, goal_Y);
+    }
+    
+    /**
+     * Constructor. Creates four nodes and prioritizes them based on
      * their directions of search relative to the goal. A 16-direction compass is
      * used to do this prioritization, which is then reduced to the 8-direction
      * compass used is all other areas of the Navigation package.
+     * @param arena storage for the nodes of this queue.
+     * @param mapWidth width of the map searched.
+     * @param mapHeight height of the map searched.
+     * @param start start coordinates.
+     * @param g end coordinates.
+     */
+    public HashQueue(NodeArena arena, int mapWidth, int mapHeight, int startX, int startY, int goal_X, int goal_Y) {
+        this(arena, mapWidth, mapHeight, CostModel.CHEBYSHEV, startX, startY, goal_X, goal_Y);
+    }
+    
+    /**
+     * Constructor for scores in the costs of a CostModel. A bucket is as wide
+     * as the cheapest move, so the buckets grow with the length of a path
+     * but not with the scale of the costs; they grow the first time a score
+     * does not fit, and a queue that is reused keeps its buckets.
+     * @param arena storage for the nodes of this queue.
+     * @param mapWidth width of the map searched.
+     * @param mapHeight height of the map searched.
+     * @param c costs of moves, for the heuristic.
      * @param start start coordinates.
      * @param g end coordinates.
      */
-    public HashQueue(int startX, int startY, int goal_X, int goal_Y) {
-        visited = new int[65536];           // Track which nodes have been visited  
-        points = new JumpPoint[8192];       // Memory for the hash table
+    public HashQueue(NodeArena arena, int mapWidth, int mapHeight, CostModel c,
+            int startX, int startY, int goal_X, int goal_Y) {
+        nodes = arena;
+        cost = c;
+        unit = c.straight * c.minWeight;
+        width = mapWidth;
+        height = mapHeight;
+        words = (width + 63) / 64;
+        visited = new long[4][height * words];  // Track which nodes have been visited
+        dirty = new long[(height + 63) / 64];
+        
+        // Memory for the hash table, grown when a score does not fit.
+        int buckets = Math.max(8192, (2 * (width + height) + 4095) & -4096);
+        points = new int[buckets];
+        occupied = new long[buckets / 64];
+        summary = new long[buckets / 64 / 64];
+        reset(startX, startY, goal_X, goal_Y);
+    }
+    
+    /**
+     * Empty this queue and start a new search on the same map. Only the
+     * buckets still in use are marked empty, and only the rows of the
+     * bitplanes that were written are cleared.
+     * @param startX x-coordinate of the start.
+     * @param startY y-coordinate of the start.
+     * @param goal_X x-coordinate of the goal.
+     * @param goal_Y y-coordinate of the goal.
+     */
+    public void reset(int startX, int startY, int goal_X, int goal_Y) {
+        for (int s = 0; s < summary.length; s++) {
+            for (long words = summary[s]; words != 0; words &= words - 1) {
+                occupied[(s << 6) + Long.numberOfTrailingZeros(words)] = 0;
+            }
+            summary[s] = 0;
+        }
+        for (int d = 0; d < dirty.length; d++) {
+            for (long rows = dirty[d]; rows != 0; rows &= rows - 1) {
+                int from = ((d << 6) + Long.numberOfTrailingZeros(rows)) * words;
+                for (long[] plane : visited) {
+                    Arrays.fill(plane, from, from + words, 0);
+                }
+            }
+            dirty[d] = 0;
+        }
         
-        JumpPoint.goalX = goal_X;
-        JumpPoint.goalY = goal_Y;
         goalX = goal_X;
         goalY = goal_Y;
         
-        // Calculate the Chebyshev distance to the goal
-        bestScore = Math.max(Math.abs(goalX - startX), Math.abs(goalY - startY));
+        // Calculate the estimated cost to the goal (the Chebyshev distance by default)
+        int bestScore = cost.estimate(goalX - startX, goalY - startY);
+        bestKey = bestScore / unit;
         
-        // Create four new JumpPoint objects at this location
-        JumpPoint front = new JumpPoint(startX,startY, bestScore);
-        JumpPoint next = new JumpPoint(startX,startY, bestScore);
-        JumpPoint next2 = new JumpPoint(startX,startY, bestScore);
-        JumpPoint next3 = new JumpPoint(startX,startY, bestScore);
+        // Create four new nodes at this location
+        int front = nodes.add(startX, startY, NodeArena.NONE, 0, bestScore);
+        int next = nodes.add(startX, startY, NodeArena.NONE, 0, bestScore);
+        int next2 = nodes.add(startX, startY, NodeArena.NONE, 0, bestScore);
+        int next3 = nodes.add(startX, startY, NodeArena.NONE, 0, bestScore);
+        int[] direction = nodes.direction;
         
         // Mark the initial coordinates as visited
-        visited[startY*256+startX] = -1;
+        int start = startY * words + (startX >>> 6);
+        long bit = 1L << (63 - (startX & 63));
+        visited[0][start] |= bit;   // Two directions: closed.
+        visited[1][start] |= bit;
+        dirty[startY >>> 6] |= 1L << startY;
         
-        switch (front.directionTo(goalX,goalY)) {
+        switch (JumpPoint.directionTo(startX, startY, goalX, goalY)) {
             case 1:     // NNE
-                front.direction = 1;    // NE
-                next.direction = 7;     // NW
-                next2.direction = 3;    // SE
-                next3.direction = 5;    // SW
+                direction[front] = 1;    // NE
+                direction[next] = 7;     // NW
+                direction[next2] = 3;    // SE
+                direction[next3] = 5;    // SW
                 break;
             case 3:     // ENE
-                front.direction = 1;    // NE
-                next.direction = 3;     // SE
-                next2.direction = 7;    // NW
-                next3.direction = 5;    // SW
+                direction[front] = 1;    // NE
+                direction[next] = 3;     // SE
+                direction[next2] = 7;    // NW
+                direction[next3] = 5;    // SW
                 break;
             case 5:     // ESE
-                front.direction = 3;    // SE
-                next.direction = 1;     // NE
-                next2.direction = 5;    // SW
-                next3.direction = 7;    // NW
+                direction[front] = 3;    // SE
+                direction[next] = 1;     // NE
+                direction[next2] = 5;    // SW
+                direction[next3] = 7;    // NW
                 break;
             case 7:     // SSE
-                front.direction = 3;    // SE
-                next.direction = 5;     // SW
-                next2.direction = 1;    // NE
-                next3.direction = 7;    // NW
+                direction[front] = 3;    // SE
+                direction[next] = 5;     // SW
+                direction[next2] = 1;    // NE
+                direction[next3] = 7;    // NW
                 break;
             case 9:     // SSW
-                front.direction = 5;    // SW
-                next.direction = 3;     // SE
-                next2.direction = 7;    // NW
-                next3.direction = 1;    // NE
+                direction[front] = 5;    // SW
+                direction[next] = 3;     // SE
+                direction[next2] = 7;    // NW
+                direction[next3] = 1;    // NE
                 break;
             case 11:    // WSW
-                front.direction = 5;    // SW
-                next.direction = 7;     // NW
-                next2.direction = 3;    // SE
-                next3.direction = 1;    // NE
+                direction[front] = 5;    // SW
+                direction[next] = 7;     // NW
+                direction[next2] = 3;    // SE
+                direction[next3] = 1;    // NE
                 break;
             case 13:    // WNW
-                front.direction = 7;    // NW
-                next.direction = 5;     // SW
-                next2.direction = 1;    // NE
-                next3.direction = 3;    // SE
+                direction[front] = 7;    // NW
+                direction[next] = 5;     // SW
+                direction[next2] = 1;    // NE
+                direction[next3] = 3;    // SE
                 break;
             default:    // NNW
-                front.direction = 7;    // NW
-                next.direction = 1;     // NE
-                next2.direction = 5;    // SW
-                next3.direction = 3;    // SE
+                direction[front] = 7;    // NW
+                direction[next] = 1;     // NE
+                direction[next2] = 5;    // SW
+                direction[next3] = 3;    // SE
                 break;
         }
         
-        // Start at index = 1 for efficient access to objects in the heap 
-        points[bestScore] = front;  // top of the heap
-        front.hashNext = next;   // top's left node
-        next.hashNext = next2;  // top's right node
-        next2.hashNext = next3;  // top left's left node 
+        if (bestKey >= points.length) {
+            grow(bestKey);
+        }
+        points[bestKey] = front;  // top of the heap
+        nodes.hashNext[front] = next;   // top's left node
+        nodes.hashNext[next] = next2;  // top's right node
+        nodes.hashNext[next2] = next3;  // top left's left node 
+        occupy(bestKey);
         
         size = 4;
     }
     
+    /**
+     * Mark a bucket as in use.
+     * @param key score of the bucket.
+     */
+    private void occupy(int key) {
+        int word = key >>> 6;
+        if (occupied[word] == 0) {
+            summary[word >>> 6] |= 1L << word;
+        }
+        occupied[word] |= 1L << key;
+    }
+    
+    /**
+     * Mark a bucket as empty.
+     * @param key score of the bucket.
+     */
+    private void vacate(int key) {
+        int word = key >>> 6;
+        if ((occupied[word] &= ~(1L << key)) == 0) {
+            summary[word >>> 6] &= ~(1L << word);
+        }
+    }
+    
+    /**
+     * Find the first bucket in use at or after a given score.
+     * @param key score to start from.
+     * @return score of the bucket; the queue must not be empty.
+     */
+    private int first(int key) {
+        int word = key >>> 6;
+        long bits = occupied[word] & (-1L << key);
+        if (bits != 0) {
+            if (stats != null) {
+                stats.bucketScans++;
+            }
+            return (word << 6) + Long.numberOfTrailingZeros(bits);
+        }
+        
+        // Find the next word of occupied with a bucket in use.
+        int s = ++word >>> 6;
+        int from = s;
+        bits = word < occupied.length ? summary[s] & (-1L << word) : 0;
+        while (bits == 0) {
+            bits = summary[++s];
+        }
+        if (stats != null) {
+            stats.bucketScans += s - from + 3;  // Both words of occupied, and the words of summary.
+        }
+        word = (s << 6) + Long.numberOfTrailingZeros(bits);
+        return (word << 6) + Long.numberOfTrailingZeros(occupied[word]);
+    }
+    
+    /**
+     * @return the lowest score in the queue, or the lowest score of its best
+     * bucket if the queue is empty.
+     */
     public int peek() {
         int out;
         if (size == 0) {
-            out = bestScore;
+            out = bestKey * unit;
         } else {
-            int i = bestScore-1;
-            while (points[++i] == null) {}
-            bestScore = i;
-            out = bestScore;
+            bestKey = first(bestKey);
+            out = nodes.score[points[bestKey]];
         }
         return out;
     }
     
-    public JumpPoint peek(int key) {
+    /**
+     * @param score a score.
+     * @return the node with the lowest score in the bucket of the score, or
+     * NodeArena.NONE if the bucket is empty.
+     */
+    public int peek(int score) {
+        int key = score / unit;
+        if ((occupied[key >>> 6] & (1L << key)) == 0) {
+            return NodeArena.NONE;
+        }
         return points[key];
     }
     
     /**
-     * Remove the jump point at the top of the gash queue.
-     * @return the jump point on the heap with the lowest f(n) = h(n) + g(n)
+     * Double the number of buckets until a score fits.
+     * @param key score of a bucket.
      */
-    public JumpPoint remove() {
-        JumpPoint remove;
+    private void grow(int key) {
+        int buckets = points.length;
+        while (buckets <= key) {
+            buckets *= 2;
+        }
+        points = Arrays.copyOf(points, buckets);
+        occupied = Arrays.copyOf(occupied, buckets / 64);
+        summary = Arrays.copyOf(summary, buckets / 64 / 64);
+    }
+    
+    /**
+     * Add a node to its bucket, ahead of the nodes with the same or a higher
+     * score.
+     * @param jp node, with its score set.
+     * @return the bucket of the node.
+     */
+    private int push(int jp) {
+        int score = nodes.score[jp];
+        int key = score / unit;
+        if (key >= points.length) {
+            grow(key);
+        }
+        int[] hashNext = nodes.hashNext;
+        if ((occupied[key >>> 6] & (1L << key)) == 0) {
+            hashNext[jp] = NodeArena.NONE;
+            occupy(key);
+        } else if (unit == 1 || score <= nodes.score[points[key]]) {
+            hashNext[jp] = points[key];
+        } else {
+            // Walk past the lower scores of a bucket that holds several.
+            int[] scores = nodes.score;
+            int prev = points[key];
+            while (hashNext[prev] != NodeArena.NONE && scores[hashNext[prev]] < score) {
+                prev = hashNext[prev];
+            }
+            hashNext[jp] = hashNext[prev];
+            hashNext[prev] = jp;
+            return key;
+        }
+        points[key] = jp;
+        return key;
+    }
+    
+    /**
+     * Remove the node at the top of the hash queue.
+     * @return the node in the queue with the lowest f(n) = h(n) + g(n), or
+     * NodeArena.NONE if the queue is empty.
+     */
+    public int remove() {
+        int remove;
         if (size == 0) {
-            remove = null;
+            remove = NodeArena.NONE;
         } else {
-            int i = bestScore-1;
-            while (points[++i] == null) {}
+            int i = first(bestKey);
             remove = points[i];
-            points[i] = remove.hashNext;
-            bestScore = i;
+            int next = nodes.hashNext[remove];
+            points[i] = next;
+            if (next == NodeArena.NONE) {
+                vacate(i);
+            }
+            bestKey = i;
             size--;
         }
         
-        return remove; // Return the JumpPoint with the smallest heuristic score.
+        return remove; // Return the node with the smallest heuristic score.
     }
     
     /**
-     * Insert a JumpPoint into the hash table, and throw its key on the bottom
-     * of the heap for later sorting only if it is a new key.
-     * @param jp JumpPoint
+     * Score a node against this queue's goal and insert it into the hash
+     * table only if its location has not been searched in its direction yet.
+     * @param jp node
      */
-    public void insert(JumpPoint jp) {
-        int index = jp.y*256+jp.x;  // Linear index of newNode coordinates.
-        int visitedDirection = visited[index];  // Previous direction of search from the new point, if any.
+    public void insert(int jp) {
+        NodeArena n = nodes;
+        int x = n.x[jp];
+        int y = n.y[jp];
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            return;     // Jumped off the edge of the map.
+        }
+        int word = y * words + (x >>> 6);   // Index of the long holding the location in each plane.
+        long bit = 1L << (63 - (x & 63));
+        long[][] v = visited;
+        // Bit d / 2 is set if the location has been searched in diagonal d.
+        int searched = ((v[0][word] & bit) != 0 ? 1 : 0) | ((v[1][word] & bit) != 0 ? 2 : 0)
+                | ((v[2][word] & bit) != 0 ? 4 : 0) | ((v[3][word] & bit) != 0 ? 8 : 0);
+        int direction = n.direction[jp];
+        int mine = 1 << (direction >> 1);
         
-        if (visitedDirection == 0) {    // If this node has not been visited...
-            visited[index] = jp.direction; // Mark it as visited with the current direction of search.
-            int myScore = jp.score;
-            jp.hashNext = points[myScore];
-            points[myScore] = jp;
-            bestScore = Math.min(myScore,bestScore);
+        if (searched == 0) {    // If this node has not been visited...
+            v[direction >> 1][word] |= bit;  // Mark it as visited with the current direction of search.
+            dirty[y >>> 6] |= 1L << y;
+            int myScore = cost.estimate(goalX-x, goalY-y)+n.distance[jp];
+            n.score[jp] = myScore;
+            bestKey = Math.min(push(jp), bestKey);
             size++;
-        } else if (visitedDirection != jp.direction && visitedDirection > 0) {
-            visited[index] = -1;    // No need to visit this location again, mark as closed.
-            int myScore = jp.score;
-            jp.hashNext = points[myScore];
-            points[myScore] = jp;
-            bestScore = Math.min(myScore,bestScore);
+        } else if (searched != mine && (searched & (searched - 1)) == 0) {
+            v[direction >> 1][word] |= bit;  // No need to visit this location again, mark as closed.
+            int myScore = cost.estimate(goalX-x, goalY-y)+n.distance[jp];
+            n.score[jp] = myScore;
+            bestKey = Math.min(push(jp), bestKey);
             size++;
+        } else if (stats != null) {
+            stats.rejected++;
+            return;
+        }
+        if (stats != null) {
+            stats.inserts++;
         }
     }
     
     /**
-     * Retrace the path from any given jump point to the start.
-     * Links nodes to create a bi-directional graph from the starting jump point
-     * to the given jump point.
-     * @param jp Jump point at the end of the path
-     * @return Jump point at the start of the path
+     * Check a run of a row for walkable squares that this search has not
+     * visited in any direction, a long of the row at a time.
+     * @param y row of the run.
+     * @param fromX x-coordinate of the first square of the run.
+     * @param toX x-coordinate of the last square of the run.
+     * @param map map searched.
+     * @return true if a walkable square of the run has not been visited.
      */
-    public JumpPoint retrace(JumpPoint jp) {
-        JumpPoint next = jp.mapLast;// Previous JumpPoint on jp's path.
-        while(next != null) {   // While jp has a previous JumpPoint on its path...
-            next.mapNext = jp;  // Link jp and next in the forward direction.
-            jp = next;          // Move back along the path by having jp reference its previous JumpPoint.
-            next = next.mapLast;// next = the JumpPoint prior to itself.
+    public boolean anyUnvisited(int y, int fromX, int toX, Map map) {
+        for (int w = fromX >>> 6; w <= toX >>> 6; w++) {
+            long mask = -1L;
+            if (w == fromX >>> 6) {
+                mask &= -1L >>> (fromX & 63);
+            }
+            if (w == toX >>> 6) {
+                mask &= -1L << (63 - (toX & 63));
+            }
+            int word = y * words + w;
+            long seen = visited[0][word] | visited[1][word] | visited[2][word] | visited[3][word];
+            if ((~map.word(y, w) & ~seen & mask) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Score a node against this queue's goal and insert it into the hash
+     * table whether or not its location has been visited, for searches that
+     * keep their own record of the best distance to each location.
+     * @param jp node
+     */
+    public void insertOpen(int jp) {
+        NodeArena n = nodes;
+        int myScore = cost.estimate(goalX-n.x[jp], goalY-n.y[jp])+n.distance[jp];
+        n.score[jp] = myScore;
+        bestKey = Math.min(push(jp), bestKey);
+        size++;
+        if (stats != null) {
+            stats.inserts++;
+        }
+    }
+    
+    /**
+     * Retrace the path from any given node to the start.
+     * Links nodes to create a bi-directional graph from the starting node
+     * to the given node.
+     * @param jp node at the end of the path
+     * @return node at the start of the path
+     */
+    public int retrace(int jp) {
+        int[] mapLast = nodes.mapLast;
+        int[] mapNext = nodes.mapNext;
+        int next = mapLast[jp];// Previous node on jp's path.
+        while(next != NodeArena.NONE) {   // While jp has a previous node on its path...
+            mapNext[next] = jp;  // Link jp and next in the forward direction.
+            jp = next;          // Move back along the path by having jp reference its previous node.
+            next = mapLast[next];// next = the node prior to itself.
         }
         return jp;
     }
     
         /**
-     * Retrace the path from any given jump point to the start.
-     * @param jp Jump point at the end of the path
-     * @return Jump point at the start of the path
-     */
-    public JumpPoint retraceNoLink(JumpPoint jp) {
-        JumpPoint next = jp.mapLast;// Previous JumpPoint on jp's path.
-        JumpPoint temp = null;
-        while(next != null) {   // While jp has a previous JumpPoint on its path...
+     * Retrace the path from any given node to the start.
+     * @param jp node at the end of the path
+     * @return node at the start of the path
+     */
+    public int retraceNoLink(int jp) {
+        int[] mapLast = nodes.mapLast;
+        int next = mapLast[jp];// Previous node on jp's path.
+        int temp = NodeArena.NONE;
+        while(next != NodeArena.NONE) {   // While jp has a previous node on its path...
             temp = jp; 
-            jp = next;          // Move back along the path by having jp reference its previous JumpPoint.
-            next = temp.mapLast;// next = the JumpPoint prior to itself.
+            jp = next;          // Move back along the path by having jp reference its previous node.
+            next = mapLast[temp];// next = the node prior to itself.
         }
-        if (temp != null) {
+        if (temp != NodeArena.NONE) {
             return temp;
         }
-        return jp;   // Return a copy of the JumpPoint at the start of the path.
+        return jp;   // Return the node at the start of the path.
     }
 }
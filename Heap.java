@@ -1,93 +1,116 @@
 package bytecodeNav;
 
+import java.util.Arrays;
+
 /**
- * Priority heap for jump point search.
+ * Priority heap for jump point search. A heap is reused for the next search
+ * with reset(); visited entries are stamped with the search's generation, so
+ * the table is not cleared or reallocated between searches.
  * @author david
  */
 public class Heap {
     
-    JumpPoint[] points;     // Array used to store this heap's nodes.
+    final NodeArena nodes;  // Storage of this heap's nodes.
+    int[] points;           // Array used to store this heap's nodes.
     
     int[] goal;             // Coordinates of the goal.
-    int[] visited;          // Record of locations that have been visited.
+    int[] visited;          // generation << 8 | direction of search, or -1 (closed), at each location.
+    int generation;         // Stamp of the current search's visited entries.
     
     int size;               // Size of this heap.
     
     /**
-     * Constructor. Creates four JumpPoint objects and prioritizes them based on
+     * Constructor. Creates four nodes and prioritizes them based on
      * their directions of search relative to the goal. A 16-direction compass is
      * used to do this prioritization, which is then reduced to the 8-direction
      * compass used is all other areas of the Navigation package.
+     * @param arena storage for the nodes of this heap.
      * @param start start coordinates.
      * @param g end coordinates.
      */
-    public Heap(int[] start, int[] g) {
+    public Heap(NodeArena arena, int[] start, int[] g) {
+        nodes = arena;
         visited = new int[65536];           // Track which nodes have been visited  
-        points = new JumpPoint[65536];      // Memory for the priority heap
-        goal = new int[] { g[0], g[1] };    // End coordinates
-        JumpPoint.goalX = g[0];
-        JumpPoint.goalY = g[1];
+        points = new int[65536];            // Memory for the priority heap
+        goal = new int[2];                  // End coordinates
+        reset(start, g);
+    }
+    
+    /**
+     * Empty this heap and start a new search. The visited table is
+     * invalidated by moving on to the next generation.
+     * @param start start coordinates.
+     * @param g end coordinates.
+     */
+    public void reset(int[] start, int[] g) {
+        if (++generation > 0xFFFFFF) {  // Stamps wrapped around; clear them once.
+            Arrays.fill(visited, 0);
+            generation = 1;
+        }
+        goal[0] = g[0];
+        goal[1] = g[1];
         
         // Calculate the Chebyshev distance to the goal
         int score = Math.max(Math.abs(g[0] - start[0]), Math.abs(g[1] - start[1]));
         
-        // Create four new JumpPoint objects at this location
-        JumpPoint front = new JumpPoint(start[0],start[1], score);
-        JumpPoint next = new JumpPoint(start[0],start[1], score+1);
-        JumpPoint next2 = new JumpPoint(start[0],start[1], score+2);
-        JumpPoint next3 = new JumpPoint(start[0],start[1], score+3);
+        // Create four new nodes at this location
+        int front = nodes.add(start[0], start[1], NodeArena.NONE, 0, score);
+        int next = nodes.add(start[0], start[1], NodeArena.NONE, 0, score+1);
+        int next2 = nodes.add(start[0], start[1], NodeArena.NONE, 0, score+2);
+        int next3 = nodes.add(start[0], start[1], NodeArena.NONE, 0, score+3);
+        int[] direction = nodes.direction;
         
         // Mark the initial coordinates as visited
-        visited[start[1]*256+start[0]] = -1;
+        visited[start[1]*256+start[0]] = generation << 8 | 0xFF;
         
-        switch (front.directionTo(g[0],g[1])) {
+        switch (JumpPoint.directionTo(start[0], start[1], g[0], g[1])) {
             case 1:     // NNE
-                front.direction = 1;    // NE
-                next.direction = 7;     // NW
-                next2.direction = 3;    // SE
-                next3.direction = 5;    // SW
+                direction[front] = 1;    // NE
+                direction[next] = 7;     // NW
+                direction[next2] = 3;    // SE
+                direction[next3] = 5;    // SW
                 break;
             case 3:     // ENE
-                front.direction = 1;    // NE
-                next.direction = 3;     // SE
-                next2.direction = 7;    // NW
-                next3.direction = 5;    // SW
+                direction[front] = 1;    // NE
+                direction[next] = 3;     // SE
+                direction[next2] = 7;    // NW
+                direction[next3] = 5;    // SW
                 break;
             case 5:     // ESE
-                front.direction = 3;    // SE
-                next.direction = 1;     // NE
-                next2.direction = 5;    // SW
-                next3.direction = 7;    // NW
+                direction[front] = 3;    // SE
+                direction[next] = 1;     // NE
+                direction[next2] = 5;    // SW
+                direction[next3] = 7;    // NW
                 break;
             case 7:     // SSE
-                front.direction = 3;    // SE
-                next.direction = 5;     // SW
-                next2.direction = 1;    // NE
-                next3.direction = 7;    // NW
+                direction[front] = 3;    // SE
+                direction[next] = 5;     // SW
+                direction[next2] = 1;    // NE
+                direction[next3] = 7;    // NW
                 break;
             case 9:     // SSW
-                front.direction = 5;    // SW
-                next.direction = 3;     // SE
-                next2.direction = 7;    // NW
-                next3.direction = 1;    // NE
+                direction[front] = 5;    // SW
+                direction[next] = 3;     // SE
+                direction[next2] = 7;    // NW
+                direction[next3] = 1;    // NE
                 break;
             case 11:    // WSW
-                front.direction = 5;    // SW
-                next.direction = 7;     // NW
-                next2.direction = 3;    // SE
-                next3.direction = 1;    // NE
+                direction[front] = 5;    // SW
+                direction[next] = 7;     // NW
+                direction[next2] = 3;    // SE
+                direction[next3] = 1;    // NE
                 break;
             case 13:    // WNW
-                front.direction = 7;    // NW
-                next.direction = 5;     // SW
-                next2.direction = 1;    // NE
-                next3.direction = 3;    // SE
+                direction[front] = 7;    // NW
+                direction[next] = 5;     // SW
+                direction[next2] = 1;    // NE
+                direction[next3] = 3;    // SE
                 break;
             default:    // NNW
-                front.direction = 7;    // NW
-                next.direction = 1;     // NE
-                next2.direction = 5;    // SW
-                next3.direction = 3;    // SE
+                direction[front] = 7;    // NW
+                direction[next] = 1;     // NE
+                direction[next2] = 5;    // SW
+                direction[next3] = 3;    // SE
                 break;
         }
         
@@ -101,13 +124,14 @@ public class Heap {
     }
     
     /**
-     * Remove the jump point at the top of the priority heap
-     * @return the jump point on the heap with the lowest f(n) = h(n) + g(n)
+     * Remove the node at the top of the priority heap
+     * @return the node on the heap with the lowest f(n) = h(n) + g(n)
      */
-    public JumpPoint remove() {
-        JumpPoint top = points[1];  // Reference the top object of the heap (smallest heuristuc)
+    public int remove() {
+        int[] score = nodes.score;
+        int top = points[1];        // Reference the top object of the heap (smallest heuristuc)
         points[1] = points[size];   // Send the bottom object to the top (largest heuristic)
-        points[size--] = null;      // Shrink the heap by 1
+        points[size--] = NodeArena.NONE;    // Shrink the heap by 1
         
         int stop = size-1;          // Stop condition for the following loop.
         
@@ -116,12 +140,12 @@ public class Heap {
             int rightIndex = i+1;           // i+1 = index of the right child
             int index = i/2;                // i/2 = index of the current parent
             
-            JumpPoint parent = points[index];       // current parent
-            JumpPoint left = points[i];             // left of parent
-            JumpPoint right = points[rightIndex];   // right of parent
-            int parentScore = parent.score;         // parent's heuristic score
-            int leftScore = left.score;             // left's heuristic score
-            int rightScore = right.score;           // right's heuristic score
+            int parent = points[index];             // current parent
+            int left = points[i];                   // left of parent
+            int right = points[rightIndex];         // right of parent
+            int parentScore = score[parent];        // parent's heuristic score
+            int leftScore = score[left];            // left's heuristic score
+            int rightScore = score[right];          // right's heuristic score
             
             // Find the object with the smallest heuristic score and push it up
             // the heap, swapping it with the object with the largest score.
@@ -141,70 +165,71 @@ public class Heap {
             }
         }
         
-        return top; // Return the JumpPoint with the smallest heuristic score.
+        return top; // Return the node with the smallest heuristic score.
     }
     
     /**
-     * Create a new jump point and insert it into the priority heap.
-     * @param newNode   coordinates of the new jump point
-     * @param direction directionality of search from the new jump point
-     * @param waypoint  point between last jump point and the new jump point
-     * @param lastJP    the last jump point
-     * @param distance the distance traveled to get to the new jump point
+     * Score a new node and insert it into the priority heap.
+     * @param newNode   the new node
      */
-    public void insert(JumpPoint newNode) {
-        int index = newNode.y*256+newNode.x;  // Linear index of newNode coordinates.
-        int visitedDirection = visited[index];  // Previous direction of search from the new point, if any.
+    public void insert(int newNode) {
+        int[] score = nodes.score;
+        int x = nodes.x[newNode];
+        int y = nodes.y[newNode];
+        int index = y*256+x;  // Linear index of newNode coordinates.
+        int stamp = visited[index];
+        // Previous direction of search from the new point, if any.
+        int visitedDirection = stamp >>> 8 == generation ? (byte) stamp : 0;
+        int direction = nodes.direction[newNode];
         
         if (visitedDirection == 0) {    // If this node has not been visited...
-            visited[index] = newNode.direction; // Mark it as visited with the current direction of search.
+            visited[index] = generation << 8 | direction; // Mark it as visited with the current direction of search.
+            score[newNode] = Math.max(Math.abs(goal[0]-x),Math.abs(goal[1]-y))+nodes.distance[newNode];
             
             
-            // Increase the size of the heap and create the new JumpPoint object.
-            //points[++size] = new JumpPoint(newNode, waypoint, lastJP, direction, distance,
-            //        Math.max(Math.abs(goal[0]-newNode[0]),Math.abs(goal[1]-newNode[1]))+distance);
-            // Increase the size of the heap and create the new JumpPoint object.
+            // Increase the size of the heap and add the new node.
             points[++size] = newNode;
             
-            int next = size-1;  // Index of the first JumpPoint.
+            int next = size-1;  // Index of the first node.
             
             int score1 = -1;
             
-            if (points[next] != null) {
-                score1 = points[next].score;
+            if (next > 0) {
+                score1 = score[points[next]];
             }
             // Iterate from the bottom of the heap to the top.
-            for (int i = next; i > 2; i=next) { // i = the current JumpPoint.
-                next /= 2;  // Index of the next JumpPoint (the current's parent).
-                int score2 = points[next].score;
-                // If the current JumpPoint's heuristic score is less than the next's...
+            for (int i = next; i > 2; i=next) { // i = the current node.
+                next /= 2;  // Index of the next node (the current's parent).
+                int score2 = score[points[next]];
+                // If the current node's heuristic score is less than the next's...
                 if (score1 < score2) {
-                    JumpPoint temp = points[next];  // Reference the next JumpPoint.
-                    points[next] = points[i];       // Swap in the current JumpPoint.
-                    points[i] = temp;               // Swap in the next JumpPoint.
+                    int temp = points[next];        // Reference the next node.
+                    points[next] = points[i];       // Swap in the current node.
+                    points[i] = temp;               // Swap in the next node.
                 } else {// Nothing needed to be swapped; our heap is ordered correctly.
                     break;  // End of insertion.
                 }
                 score1 = score2;
             }
         // else if this node has been visited and the direction of search is different...
-        } else if (visitedDirection != newNode.direction && visitedDirection > 0) {
-            visited[index] = -1;    // No need to visit this location again, mark as closed.
+        } else if (visitedDirection != direction && visitedDirection > 0) {
+            visited[index] = generation << 8 | 0xFF;    // No need to visit this location again, mark as closed.
+            score[newNode] = Math.max(Math.abs(goal[0]-x),Math.abs(goal[1]-y))+nodes.distance[newNode];
             
-            // Increase the size of the heap and create the new JumpPoint object.
+            // Increase the size of the heap and add the new node.
             points[++size] = newNode;
             
-            int next = size-1;  // Index of the first JumpPoint.
-            int score1 = points[next].score;
+            int next = size-1;  // Index of the first node.
+            int score1 = score[points[next]];
             // Iterate from the bottom of the heap to the top.
-            for (int i = next; i > 2; i=next) { // i = the current JumpPoint.
-                next /= 2;  // Index of the next JumpPoint (the current's parent).
-                int score2 = points[next].score;
-                // If the current JumpPoint's heuristic score is less than the next's...
+            for (int i = next; i > 2; i=next) { // i = the current node.
+                next /= 2;  // Index of the next node (the current's parent).
+                int score2 = score[points[next]];
+                // If the current node's heuristic score is less than the next's...
                 if (score1 < score2) {
-                    JumpPoint temp = points[next];  // Reference the next JumpPoint.
-                    points[next] = points[i];       // Swap in the current JumpPoint.
-                    points[i] = temp;               // Swap in the next JumpPoint.
+                    int temp = points[next];        // Reference the next node.
+                    points[next] = points[i];       // Swap in the current node.
+                    points[i] = temp;               // Swap in the next node.
                 } else {// Nothing needed to be swapped; our heap is ordered correctly.
                     break;  // End of insertion.
                 }
@@ -214,21 +239,22 @@ public class Heap {
     }
     
     /**
-     * Insert an existing JumpPoint into the priority heap.
-     * @param jp existing JumpPoint
+     * Insert an existing node into the priority heap.
+     * @param jp existing node
      */
-    public void insert(JumpPoint jp, boolean existing) {
+    public void insert(int jp, boolean existing) {
+        int[] score = nodes.score;
         points[++size] = jp;
-        int next = size-1;  // Index of the first JumpPoint.
+        int next = size-1;  // Index of the first node.
         // Iterate from the bottom of the heap to the top.
-        for (int i = next; i > 2; i=next) { // i = the current JumpPoint.
-            next /= 2;  // Index of the next JumpPoint (the current's parent).
+        for (int i = next; i > 2; i=next) { // i = the current node.
+            next /= 2;  // Index of the next node (the current's parent).
                 
-            // If the current JumpPoint's heuristic score is less than the next's...
-            if (points[i].score < points[next].score) {
-                JumpPoint temp = points[next];  // Reference the next JumpPoint.
-                points[next] = points[i];       // Swap in the current JumpPoint.
-                points[i] = temp;               // Swap in the next JumpPoint.
+            // If the current node's heuristic score is less than the next's...
+            if (score[points[i]] < score[points[next]]) {
+                int temp = points[next];        // Reference the next node.
+                points[next] = points[i];       // Swap in the current node.
+                points[i] = temp;               // Swap in the next node.
             } else {// Nothing needed to be swapped; our heap is ordered correctly.
                 break;  // End of insertion.
             }
@@ -236,38 +262,41 @@ public class Heap {
     }
     
     /**
-     * Retrace the path from any given jump point to the start.
-     * Links nodes to create a bi-directional graph from the starting jump point
-     * to the given jump point.
-     * @param jp Jump point at the end of the path
-     * @return Jump point at the start of the path
+     * Retrace the path from any given node to the start.
+     * Links nodes to create a bi-directional graph from the starting node
+     * to the given node.
+     * @param jp node at the end of the path
+     * @return node at the start of the path
      */
-    public JumpPoint retrace(JumpPoint jp) {
-        JumpPoint next = jp.mapLast;// Previous JumpPoint on jp's path.
-        while(next != null) {   // While jp has a previous JumpPoint on its path...
-            next.mapNext = jp;  // Link jp and next in the forward direction.
-            jp = next;          // Move back along the path by having jp reference its previous JumpPoint.
-            next = next.mapLast;// next = the JumpPoint prior to itself.
+    public int retrace(int jp) {
+        int[] mapLast = nodes.mapLast;
+        int[] mapNext = nodes.mapNext;
+        int next = mapLast[jp];// Previous node on jp's path.
+        while(next != NodeArena.NONE) {   // While jp has a previous node on its path...
+            mapNext[next] = jp;  // Link jp and next in the forward direction.
+            jp = next;          // Move back along the path by having jp reference its previous node.
+            next = mapLast[next];// next = the node prior to itself.
         }
         return jp;
     }
     
         /**
-     * Retrace the path from any given jump point to the start.
-     * @param jp Jump point at the end of the path
-     * @return Jump point at the start of the path
+     * Retrace the path from any given node to the start.
+     * @param jp node at the end of the path
+     * @return node at the start of the path
      */
-    public JumpPoint retraceNoLink(JumpPoint jp) {
-        JumpPoint next = jp.mapLast;// Previous JumpPoint on jp's path.
-        JumpPoint temp = null;
-        while(next != null) {   // While jp has a previous JumpPoint on its path...
+    public int retraceNoLink(int jp) {
+        int[] mapLast = nodes.mapLast;
+        int next = mapLast[jp];// Previous node on jp's path.
+        int temp = NodeArena.NONE;
+        while(next != NodeArena.NONE) {   // While jp has a previous node on its path...
             temp = jp; 
-            jp = next;          // Move back along the path by having jp reference its previous JumpPoint.
-            next = temp.mapLast;// next = the JumpPoint prior to itself.
+            jp = next;          // Move back along the path by having jp reference its previous node.
+            next = mapLast[temp];// next = the node prior to itself.
         }
-        if (temp != null) {
+        if (temp != NodeArena.NONE) {
             return temp;
         }
-        return jp;   // Return a copy of the JumpPoint at the start of the path.
+        return jp;   // Return the node at the start of the path.
     }
 }
@@ -0,0 +1,99 @@
+package bytecodeNav;
+
+/**
+ * BitScan for regular JVMs. NavTools spends thousands of lines of switch
+ * statements to save bytecodes, which leaves its methods far too large to be
+ * JIT-compiled. The same scans are done here with Long.numberOfTrailingZeros
+ * and Long.numberOfLeadingZeros, which compile to single instructions.
+ * 
+ * Unlike NavTools, which looks at no more than three longs of a row and
+ * assumes that rows are four longs long, a scan continues across the longs of
+ * a row of any length until it finds a bit or reaches the end of the row.
+ * Both give the same results for scans that end within three longs.
+ *
+ * @author David
+ */
+public class IntrinsicScan implements BitScan {
+
+    public int distanceLeft(int x, int y, long[][] map) {
+        int shift = 63 - (x % 64);  // Amount to shift the first long's bits.
+        x /= 64;                    // X-index of the first long in the array.
+        long[] row = map[y];
+        
+        // Least significant bit of i is our current position in the row.
+        long i = row[x] >>> shift;
+        if (i != 0) {
+            return Long.numberOfTrailingZeros(i);
+        }
+        int distance = 64 - shift;
+        while (--x >= 0) {
+            i = row[x];
+            if (i != 0) {
+                return distance + Long.numberOfTrailingZeros(i);
+            }
+            distance += 64;
+        }
+        return distance;
+    }
+
+    public int distanceRight(int x, int y, long[][] map) {
+        int shift = x % 64;
+        x /= 64;
+        long[] row = map[y];
+        
+        // Most significant bit of i is our current position in the row.
+        long i = row[x] << shift;
+        if (i != 0) {
+            return Long.numberOfLeadingZeros(i);
+        }
+        int distance = 64 - shift;
+        while (++x < row.length) {
+            i = row[x];
+            if (i != 0) {
+                return distance + Long.numberOfLeadingZeros(i);
+            }
+            distance += 64;
+        }
+        return distance;
+    }
+
+    public int distanceVoidLeft(int x, int y, long[][] map) {
+        int shift = 63 - (x % 64);
+        x /= 64;
+        long[] row = map[y];
+        
+        long i = ~row[x] >>> shift;
+        if (i != 0) {
+            return Long.numberOfTrailingZeros(i);
+        }
+        int distance = 64 - shift;
+        while (--x >= 0) {
+            i = ~row[x];
+            if (i != 0) {
+                return distance + Long.numberOfTrailingZeros(i);
+            }
+            distance += 64;
+        }
+        return distance;
+    }
+
+    public int distanceVoidRight(int x, int y, long[][] map) {
+        int shift = x % 64;
+        x /= 64;
+        long[] row = map[y];
+        
+        long i = ~row[x] << shift;
+        if (i != 0) {
+            return Long.numberOfLeadingZeros(i);
+        }
+        int distance = 64 - shift;
+        while (++x < row.length) {
+            i = ~row[x];
+            if (i != 0) {
+                return distance + Long.numberOfLeadingZeros(i);
+            }
+            distance += 64;
+        }
+        return distance;
+    }
+}
@@ -1,20 +1,19 @@
 package bytecodeNav;
 
 /**
- * 
+ * Detached copy of a node in a path. Searches keep their nodes in a NodeArena;
+ * JumpPoint objects are only created on request by NodeArena.toJumpPoint().
  * @author david
  */
 public class JumpPoint {
     
     JumpPoint mapNext;  // Link to the JumpPoint following this JumpPoint in the path.
     JumpPoint mapLast;  // Link to the JumpPoint behind this JumpPoint in the path.
-    JumpPoint hashNext;  // Link to the JumpPoint behind this JumpPoint in the path.
     int score;          // Result of the heuristic function for this JumpPoint.
     int distance;       // Distance traveled to this JumpPoint.
     int direction;      // Direction of search from this JumpPoint.
     int x,y,wx,wy;      // Coordinates of this JumpPoint and its waypoint.
     int distanceX,distanceY;    // Distances left and right from this node to a void.
-    static int goalX, goalY;
     
     /**
      * Constructor to copy JumpPoint objects.
@@ -57,13 +56,12 @@ public class JumpPoint {
     }
     
     /**
-     *
+     * Constructor for a JumpPoint following another JumpPoint in a path.
      * @param coords coordinates of this jump point
      * @param w waypoint between last jump point and this jump point
      * @param last last JumpPoint
      * @param dir directionality of this jump point
      * @param dist distance traveled to this node
-     * @param s heuristic f(n) = h(n) + g(n)
      */
     public JumpPoint(int xLoc, int yLoc, JumpPoint last, int dir, int dist) {
         x = xLoc;
@@ -72,7 +70,6 @@ public class JumpPoint {
         distance = dist;
         distanceX = -1;
         distanceY = -1;
-        score = Math.max(Math.abs(goalX-x),Math.abs(goalY-y))+distance;
         mapLast = last;
         mapLast.mapNext = this;
     }
@@ -185,12 +182,25 @@ public class JumpPoint {
      * NNE = 1, ENE = 3, ESE = 5, SSE = 7, SSW = 9, WSW = 11, WNW = 13, NNW = 15
      */
     public int directionTo(int x2, int y2) {
+        return directionTo(x, y, x2, y2);
+    }
+    
+    /**
+     * Find the direction from one point to another when four directions of
+     * search are needed. See directionTo(int, int).
+     * @param x1 x-coordinate of the first point.
+     * @param y1 y-coordinate of the first point.
+     * @param x2 x-coordinate of the given point.
+     * @param y2 y-coordinate of the given point.
+     * @return integer from 0-15, as returned by directionTo(int, int).
+     */
+    public static int directionTo(int x1, int y1, int x2, int y2) {
         
         int nextDirection;
-        int dx = x - x2;
-        int dy = y - y2;
+        int dx = x1 - x2;
+        int dy = y1 - y2;
         
-        if (dx != 0) {
+        if (dx != 0 && dy / dx >= -256) {   // Steeper slopes point N or S.
             switch (dy / dx) {
                 case -256:
                 case -255:
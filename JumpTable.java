@@ -0,0 +1,235 @@
+package bytecodeNav;
+
+import java.util.stream.IntStream;
+
+/**
+ * Precomputed jump distances for JPS+ on a static map. For every square and
+ * each of the 8 directions (0 = N, 1 = NE, ... 7 = NW, as in Navigation), the
+ * table holds a short:
+ *
+ * - d > 0  : the next jump point in that direction is d squares away.
+ * - d <= 0 : there is no jump point before the next non-walkable square or the
+ *            edge of the map, which is -d + 1 squares away.
+ *
+ * A straight jump point has a forced neighbor. A diagonal jump point has a
+ * forced neighbor or a straight jump point in one of its two straight
+ * directions. Diagonal moves may cut corners, as in the rest of the package.
+ * Runs longer than Short.MAX_VALUE are split by an extra jump point.
+ *
+ * On a map with terrain classes, every walkable square next to a walkable
+ * square of another class is also a jump point, in every direction. Between
+ * such squares the terrain is uniform, so the pruning above still finds the
+ * cheapest paths when a CostModel weighs the classes; jumps never cross from
+ * one class to another.
+ *
+ * Building a table takes one sweep per direction: rows and columns are
+ * independent for the straight directions and are swept in parallel, then the
+ * four diagonal directions are swept in parallel. A table describes the map as
+ * it was when built; see version.
+ *
+ * @author David
+ */
+public class JumpTable {
+
+    static final int[] DX = { 0, 1, 1, 1, 0, -1, -1, -1 };  // x-step of each direction.
+    static final int[] DY = { -1, -1, 0, 1, 1, 1, 0, -1 };  // y-step of each direction.
+
+    final Map map;              // Map the table was built from.
+    final int width, height;    // Size of the map.
+    final int version;          // Map.version() when the table was built.
+    final short[][] jumps;      // jumps[direction][y * width + x]
+    final long[][] boundary;    // Row-major bits of squares next to another terrain class, or null.
+
+    private JumpTable(Map map) {
+        this.map = map;
+        width = map.width;
+        height = map.height;
+        version = map.version();
+        jumps = new short[8][width * height];
+        boundary = map.terrainX != null ? boundary(map) : null;
+    }
+
+    /**
+     * Build the table of a map.
+     * @param map map to preprocess. Must not change while the table is built.
+     * @return the table.
+     */
+    public static JumpTable build(Map map) {
+        final JumpTable table = new JumpTable(map);
+        IntStream.range(0, table.height).parallel().forEach(y -> {
+            table.sweep(2, y, table.width - 1, -1);     // E, from the right edge
+            table.sweep(6, y, 0, 1);                    // W, from the left edge
+        });
+        IntStream.range(0, table.width).parallel().forEach(x -> {
+            table.sweep(0, x, 0, 1);                    // N, from the top edge
+            table.sweep(4, x, table.height - 1, -1);    // S, from the bottom edge
+        });
+        IntStream.of(1, 3, 5, 7).parallel().forEach(table::sweepDiagonal);
+        return table;
+    }
+
+    /**
+     * @param direction direction of search.
+     * @param x map x-coordinate.
+     * @param y map y-coordinate.
+     * @return jump distance from (x,y) in the direction, as described above.
+     */
+    public int get(int direction, int x, int y) {
+        return jumps[direction][y * width + x];
+    }
+
+    /**
+     * @return true if the table still matches its map.
+     */
+    public boolean isCurrent() {
+        return map.version() == version;
+    }
+
+    /**
+     * @return true if (x,y) is on the map and walkable.
+     */
+    boolean free(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height && !map.isBlocked(x, y);
+    }
+
+    /**
+     * @return true if (x,y) is walkable and next to a walkable square of
+     * another terrain class.
+     */
+    boolean isBoundary(int x, int y) {
+        return boundary != null && (boundary[y][x / 64] & (1L << (63 - (x % 64)))) != 0;
+    }
+
+    /**
+     * @param direction straight direction of travel.
+     * @return true if (x,y), entered in the direction, has a forced neighbor.
+     */
+    boolean forcedStraight(int direction, int x, int y) {
+        int left = (direction + 6) & 7;
+        int right = (direction + 2) & 7;
+        int dx = DX[direction], dy = DY[direction];
+        return (!free(x + DX[left], y + DY[left]) && free(x + DX[left] + dx, y + DY[left] + dy))
+                || (!free(x + DX[right], y + DY[right]) && free(x + DX[right] + dx, y + DY[right] + dy));
+    }
+
+    /**
+     * @param direction diagonal direction of travel.
+     * @return true if (x,y), entered in the direction, has a forced neighbor.
+     */
+    boolean forcedDiagonal(int direction, int x, int y) {
+        int a = (direction + 7) & 7;    // Straight parts of the direction,
+        int b = (direction + 1) & 7;    // e.g. N and E for NE.
+        return (!free(x - DX[b], y - DY[b]) && free(x - DX[b] + DX[a], y - DY[b] + DY[a]))
+                || (!free(x - DX[a], y - DY[a]) && free(x - DX[a] + DX[b], y - DY[a] + DY[b]));
+    }
+
+    /**
+     * Jump distance of a square from the one next to it in the direction.
+     * @param jumpPoint true if the next square is a jump point.
+     * @param next jump distance of the next square.
+     */
+    static short step(boolean jumpPoint, int next) {
+        int distance = next > 0 ? next + 1 : next - 1;
+        if (jumpPoint || distance > Short.MAX_VALUE || distance < -Short.MAX_VALUE) {
+            return 1;
+        }
+        return (short) distance;
+    }
+
+    /**
+     * Fill in a straight direction for one row or column, starting at the edge
+     * the direction points to.
+     * @param direction straight direction.
+     * @param line y of a row (E, W) or x of a column (N, S).
+     * @param first x or y of the square at that edge.
+     * @param delta step from one square to the next of the sweep.
+     */
+    private void sweep(int direction, int line, int first, int delta) {
+        short[] table = jumps[direction];
+        boolean row = DY[direction] == 0;
+        int length = row ? width : height;
+        for (int i = first; i >= 0 && i < length; i += delta) {
+            int x = row ? i : line;
+            int y = row ? line : i;
+            int nx = x + DX[direction], ny = y + DY[direction];
+            if (!free(nx, ny)) {
+                table[y * width + x] = 0;
+            } else {
+                boolean jumpPoint = forcedStraight(direction, nx, ny) || isBoundary(nx, ny);
+                table[y * width + x] = step(jumpPoint, table[ny * width + nx]);
+            }
+        }
+    }
+
+    /**
+     * Fill in a diagonal direction, starting with the row at the edge the
+     * direction points to. Needs the straight directions.
+     * @param direction diagonal direction.
+     */
+    private void sweepDiagonal(int direction) {
+        short[] table = jumps[direction];
+        short[] a = jumps[(direction + 7) & 7];
+        short[] b = jumps[(direction + 1) & 7];
+        int dx = DX[direction], dy = DY[direction];
+        for (int i = 0; i < height; i++) {
+            int y = dy < 0 ? i : height - 1 - i;
+            for (int x = 0; x < width; x++) {
+                int nx = x + dx, ny = y + dy;
+                if (!free(nx, ny)) {
+                    table[y * width + x] = 0;
+                } else {
+                    int next = ny * width + nx;
+                    boolean jumpPoint = a[next] > 0 || b[next] > 0 || forcedDiagonal(direction, nx, ny)
+                            || isBoundary(nx, ny);
+                    table[y * width + x] = step(jumpPoint, table[next]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Find the terrain boundary of a map with bit operations: for each class,
+     * the squares of the class next to a walkable square of another class.
+     * @param map map with terrain planes, and mapX.
+     * @return row-major bits of the boundary squares.
+     */
+    static long[][] boundary(Map map) {
+        int words = (map.width + 63) / 64;
+        long[][] boundary = new long[map.height][words];
+        long[][] mine = new long[map.height][words];     // Walkable squares of the class.
+        long[][] others = new long[map.height][words];   // Walkable squares of other classes.
+        for (int k = 0; k <= map.terrainX.length; k++) {
+            for (int y = 0; y < map.height; y++) {
+                for (int w = 0; w < words; w++) {
+                    long walkable = ~map.mapX[y][w];
+                    long plane = 0;
+                    if (k > 0) {
+                        plane = map.terrainX[k - 1][y][w];
+                    } else {
+                        for (long[][] p : map.terrainX) {
+                            plane |= p[y][w];
+                        }
+                        plane = ~plane;
+                    }
+                    mine[y][w] = walkable & plane;
+                    others[y][w] = walkable & ~plane;
+                }
+            }
+            for (int y = 0; y < map.height; y++) {
+                for (int w = 0; w < words; w++) {
+                    if (mine[y][w] == 0) {
+                        continue;
+                    }
+                    long near = 0;  // Squares next to a square of another class.
+                    for (int r = Math.max(0, y - 1); r <= Math.min(map.height - 1, y + 1); r++) {
+                        long[] row = others[r];
+                        near |= row[w] | (row[w] << 1) | (row[w] >>> 1)
+                                | (w + 1 < words ? row[w + 1] >>> 63 : 0) | (w > 0 ? row[w - 1] << 63 : 0);
+                    }
+                    boundary[y][w] |= mine[y][w] & near;
+                }
+            }
+        }
+        return boundary;
+    }
+}
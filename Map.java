@@ -6,22 +6,44 @@ package bytecodeNav;
  * - Two 2D arrays are used to facilitate bit-manipulation along both the X-axis
  *   and the Y-axis.
  * 
- * - Assumes a maximum grid size of 128x128.
+ * - A map is width x height squares. Each row of mapX holds width bits in
+ *   (width + 63) / 64 longs and each column of mapY holds height bits in
+ *   (height + 63) / 64 longs, so memory grows with the size of the map. Bits
+ *   past the end of a row or column are set.
+ * 
+ * - The default map is 256x256, enough for a grid up to 128x128 around an
+ *   origin anywhere in the grid.
  * 
  * - The set bits in each long represent non-walkable squares in a grid.
  * 
  * - "Real coords" refers to the actual grid's coordinates.
- * - "Map coords" refers to the real coords mapped to a normalized 128x128 grid.
+ * - "Map coords" refers to the real coords mapped to the width x height map.
  * - "Indices" or "index" typically refers to indices of bits in the long arrays.
  * 
+ * - Squares are changed with setBlocked(), clear() and applyUpdates(), which
+ *   keep mapX and mapY consistent and increment the map's version. Searches
+ *   must not run while the map is being changed.
+ * 
+ * - The latest changed squares are kept in a change log, so that a planner
+ *   can repair its paths instead of searching again: it takes changeMark()
+ *   when it plans, and later asks changesSince() that mark. The log holds the
+ *   last LOG_SIZE squares; rebuildColumns() changes squares without logging
+ *   them, so marks from before it have no changes to list.
+ * 
+ * - Walkable squares may belong to terrain classes (e.g. road, rough, swamp)
+ *   that a CostModel weighs differently. Class 0 is plain terrain; every other
+ *   class k has a bitplane of its own in terrainX[k - 1] and terrainY[k - 1],
+ *   laid out like mapX and mapY, with a set bit for each square of the class.
+ *   The planes are only made once a square is given a class.
+ * 
  * - "Origin" refers to a reference point used to convert between map coords and 
- *    real coords, enabling the user of the map to gather data of a grid up to 
- *    128x128 without knowing the real dimensions.
+ *    real coords, enabling the user of the map to gather data of a grid without
+ *    knowing the real dimensions.
  * 
  *    Origin in real coords - parameter required by the constructor.
- *    Origin in map coords  - (128,128)
- *    Origin rowMajor index - [128][4]
- *    Origin colMajor index - [4][128]
+ *    Origin in map coords  - (width/2,height/2), (128,128) by default
+ *    Origin rowMajor index - [height/2][width/128]
+ *    Origin colMajor index - [width/2][height/128]
  * 
  * @author David Bell
  */
@@ -30,23 +52,287 @@ public class Map {
     public long[][] mapY;   // Column-major storage of the map.
     public long[][] mapX;   // Row-major storage of the map.
     public final int[] origin;  // Origin in real coordinates.
+    public final int width, height; // Size of the map in squares.
+    int version;    // Incremented by every change to the map.
+    long[][][] terrainX;    // Row-major bitplane of each terrain class from 1, or null.
+    long[][][] terrainY;    // Column-major bitplane of each terrain class from 1, or null.
+    
+    static final int LOG_SIZE = 4096;   // Number of changed squares the change log holds.
+    private int[] log;      // y * width + x of the latest changed squares in a ring, -1 for
+                            // changes of unknown squares; made on the first change.
+    private long logged;    // Number of entries ever written to the log.
     
     /**
-     * Constructor.
+     * Constructor for a 256x256 map.
      * @param originX - Best approximation for the X-midpoint of the real map.
      * @param originY - Best approximation for the Y-midpoint of the real map.
      */
     public Map(int originX, int originY) {
+        this(originX, originY, 256, 256);
+    }
+    
+    /**
+     * Constructor. Every square of the map starts out walkable.
+     * @param originX - Real x-coordinate placed at map coord width/2.
+     * @param originY - Real y-coordinate placed at map coord height/2.
+     * @param width - Number of squares in a row.
+     * @param height - Number of squares in a column.
+     */
+    public Map(int originX, int originY, int width, int height) {
+        this(originX, originY, width, height,
+                new long[height][(width + 63) / 64], new long[width][(height + 63) / 64]);
+        pad(mapX, width);
+        pad(mapY, height);
+    }
+    
+    /**
+     * Constructor for given bit arrays, which are null for maps that keep
+     * their bits somewhere else.
+     */
+    Map(int originX, int originY, int width, int height, long[][] rows, long[][] columns) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Map size " + width + "x" + height);
+        }
         origin = new int[] { originX, originY };
-        mapX = new long[256][4];
-        mapY = new long[256][4];
+        this.width = width;
+        this.height = height;
+        mapX = rows;
+        mapY = columns;
+    }
+    
+    /**
+     * Set the bits past the end of every row of a bit array, so that scans
+     * stop at the edge of the map.
+     * @param bits row-major or column-major bit array.
+     * @param length number of squares in a row of the array.
+     */
+    private static void pad(long[][] bits, int length) {
+        if (length % 64 != 0) {
+            long padding = -1L >>> (length % 64);
+            for (long[] row : bits) {
+                row[row.length - 1] |= padding;
+            }
+        }
+    }
+    
+    /**
+     * @param x map x-coordinate.
+     * @param y map y-coordinate.
+     * @return true if the square is non-walkable.
+     */
+    public boolean isBlocked(int x, int y) {
+        return ((mapX[y][x / 64] >>> (63 - (x % 64))) & 1L) == 1;
+    }
+    
+    /**
+     * @param y map y-coordinate.
+     * @param w index of a long in the row.
+     * @return long w of row y, as in mapX.
+     */
+    long word(int y, int w) {
+        return mapX[y][w];
+    }
+    
+    /**
+     * Make a square non-walkable.
+     * @param x map x-coordinate.
+     * @param y map y-coordinate.
+     */
+    public void setBlocked(int x, int y) {
+        set(x, y, true);
+        version++;
+    }
+    
+    /**
+     * Make a square walkable.
+     * @param x map x-coordinate.
+     * @param y map y-coordinate.
+     */
+    public void clear(int x, int y) {
+        set(x, y, false);
+        version++;
+    }
+    
+    /**
+     * Change a batch of squares, e.g. everything a unit sensed this round.
+     * The version is incremented once for the whole batch. Every square is
+     * checked before any is changed, so a batch with a square off the map
+     * changes nothing.
+     * @param packedCells y * width + x of each square to make non-walkable,
+     * or ~(y * width + x) of each square to make walkable.
+     */
+    public void applyUpdates(int[] packedCells) {
+        for (int cell : packedCells) {
+            if ((cell < 0 ? ~cell : cell) >= (long) width * height) {
+                throw new IllegalArgumentException("Square " + (cell < 0 ? ~cell : cell) + " is off the map");
+            }
+        }
+        try {
+            for (int cell : packedCells) {
+                if (cell >= 0) {
+                    set(cell % width, cell / width, true);
+                } else {
+                    cell = ~cell;
+                    set(cell % width, cell / width, false);
+                }
+            }
+        } finally {
+            version++;  // Even if the batch stopped partway, paths may be out of date.
+        }
+    }
+    
+    /**
+     * Set or clear the bit of a square in both mapX and mapY.
+     * @param x map x-coordinate.
+     * @param y map y-coordinate.
+     * @param blocked true to make the square non-walkable.
+     * @throws IllegalArgumentException if the square is off the map; nothing
+     * is changed or logged.
+     */
+    void set(int x, int y, boolean blocked) {
+        check(x, y);
+        log(y * width + x);
+        long xBit = 1L << (63 - (x % 64));
+        long yBit = 1L << (63 - (y % 64));
+        if (blocked) {
+            mapX[y][x / 64] |= xBit;
+            mapY[x][y / 64] |= yBit;
+        } else {
+            mapX[y][x / 64] &= ~xBit;
+            mapY[x][y / 64] &= ~yBit;
+        }
+    }
+    
+    /**
+     * @throws IllegalArgumentException if (x,y) is off the map.
+     */
+    private void check(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            throw new IllegalArgumentException("Square (" + x + "," + y + ") is off the map");
+        }
+    }
+    
+    /**
+     * Put a square in a terrain class. A square is in one class at a time.
+     * @param x map x-coordinate.
+     * @param y map y-coordinate.
+     * @param terrainClass class of the square; 0 for plain terrain.
+     */
+    public void setTerrain(int x, int y, int terrainClass) {
+        if (terrainClass < 0) {
+            throw new IllegalArgumentException("Terrain class " + terrainClass);
+        }
+        check(x, y);
+        int planes = terrainX == null ? 0 : terrainX.length;
+        if (terrainClass > planes) {
+            long[][][] rows = new long[terrainClass][][];
+            long[][][] columns = new long[terrainClass][][];
+            for (int k = 0; k < terrainClass; k++) {
+                rows[k] = k < planes ? terrainX[k] : new long[height][(width + 63) / 64];
+                columns[k] = k < planes ? terrainY[k] : new long[width][(height + 63) / 64];
+            }
+            terrainX = rows;
+            terrainY = columns;
+        }
+        log(y * width + x);
+        long xBit = 1L << (63 - (x % 64));
+        long yBit = 1L << (63 - (y % 64));
+        for (int k = 0; terrainX != null && k < terrainX.length; k++) {
+            if (k == terrainClass - 1) {
+                terrainX[k][y][x / 64] |= xBit;
+                terrainY[k][x][y / 64] |= yBit;
+            } else {
+                terrainX[k][y][x / 64] &= ~xBit;
+                terrainY[k][x][y / 64] &= ~yBit;
+            }
+        }
+        version++;
+    }
+    
+    /**
+     * @param x map x-coordinate.
+     * @param y map y-coordinate.
+     * @return terrain class of the square; 0 for plain terrain.
+     */
+    public int terrain(int x, int y) {
+        if (terrainX != null) {
+            long xBit = 1L << (63 - (x % 64));
+            for (int k = 0; k < terrainX.length; k++) {
+                if ((terrainX[k][y][x / 64] & xBit) != 0) {
+                    return k + 1;
+                }
+            }
+        }
+        return 0;
+    }
+    
+    /**
+     * @return number of terrain classes with a bitplane, plus plain terrain.
+     */
+    public int terrainClasses() {
+        return terrainX == null ? 1 : terrainX.length + 1;
+    }
+    
+    /**
+     * Rebuild mapY from mapX, e.g. after writing mapX directly. Takes a 64x64
+     * bit transpose per tile of the map.
+     */
+    public void rebuildColumns() {
+        mapY = BitTranspose.columns(mapX, width, height);
+        log(-1);
+        version++;
+    }
+    
+    /**
+     * Write an entry to the change log.
+     * @param cell y * width + x of a changed square, or -1 if unknown.
+     */
+    private void log(int cell) {
+        if (log == null) {
+            log = new int[LOG_SIZE];
+        }
+        log[(int) (logged++ % LOG_SIZE)] = cell;
+    }
+    
+    /**
+     * @return position in the change log, to pass to changesSince() later.
+     */
+    public long changeMark() {
+        return logged;
+    }
+    
+    /**
+     * @param mark changeMark() from before the changes.
+     * @return y * width + x of every square changed since the mark, oldest
+     * first and possibly repeated, or null if the log no longer holds them all.
+     */
+    public int[] changesSince(long mark) {
+        if (mark > logged || logged - mark > LOG_SIZE) {
+            return null;
+        }
+        int[] cells = new int[(int) (logged - mark)];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = log[(int) ((mark + i) % LOG_SIZE)];
+            if (cells[i] < 0) {
+                return null;
+            }
+        }
+        return cells;
+    }
+    
+    /**
+     * @return number of changes made to the map, for telling whether paths
+     * found earlier may be out of date.
+     */
+    public int version() {
+        return version;
     }
     
     public int[] mapToArray(int x, int y) {
-        return new int[]{x-origin[0]+128, y-origin[1]+128};
+        return new int[]{x-origin[0]+width/2, y-origin[1]+height/2};
     }
     
     public int[] arrayToMap(int[] location) {
-        return new int[]{location[0]-128+origin[0],location[1]-128+origin[1]};
+        return new int[]{location[0]-width/2+origin[0],location[1]-height/2+origin[1]};
     }
 }
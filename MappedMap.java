@@ -0,0 +1,185 @@
+package bytecodeNav;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Map whose bits stay in a memory-mapped file instead of on the heap. Opening
+ * a map only maps the file, so it takes the same time for any size of map, and
+ * the operating system pages in the parts of the map that are searched.
+ *
+ * - mapX and mapY are null. Searches scan the file through MappedScan, and
+ *   isBlocked() reads from it.
+ * - The map is read-only; setBlocked(), clear(), applyUpdates(), setTerrain()
+ *   and rebuildColumns() throw an UnsupportedOperationException, and leave
+ *   the version as it was.
+ * - The file is written once from a regular Map with write(), e.g. after
+ *   loading it with MovingAi, and then opened with open().
+ * - Rows and columns are mapped separately, and FileChannel.map() maps less
+ *   than 2 GiB at a time, so each of them must be under 2 GiB (e.g. 65536x65536
+ *   squares, 512 MiB each). Larger maps are rejected by write() and open().
+ *
+ * File layout, little-endian:
+ *    magic, width, height, originX, originY   - long, 4 ints, 8 bytes padding
+ *    rows    - height rows of (width + 63) / 64 longs, like mapX
+ *    columns - width columns of (height + 63) / 64 longs, like mapY
+ *
+ * @author David
+ */
+public class MappedMap extends Map {
+
+    static final long MAGIC = 0x4A50534D41503031L;     // "JPSMAP01"
+    static final int HEADER = 32;                       // Bytes before the rows.
+    static final long MAX_BYTES = Integer.MAX_VALUE;    // Most bytes FileChannel.map() maps at once.
+
+    final LongBuffer rows, columns;     // Row-major and column-major bits.
+
+    private MappedMap(int originX, int originY, int width, int height, LongBuffer rows, LongBuffer columns) {
+        super(originX, originY, width, height, null, null);
+        this.rows = rows;
+        this.columns = columns;
+    }
+
+    /**
+     * Convert a Moving AI .map file for open().
+     * Usage: MappedMap file.map file.bits
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: MappedMap file.map file.bits");
+            return;
+        }
+        write(MovingAi.loadMap(args[0]), args[1]);
+    }
+
+    /**
+     * Map a file written by write(). The file may be closed or deleted while
+     * the map is in use.
+     * @param path file to map.
+     * @return the map, read-only.
+     * @throws IOException if the file cannot be mapped, is not a map, or
+     * holds a map too large to map.
+     */
+    public static MappedMap open(String path) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(path, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getLong(0) != MAGIC) {
+                throw new IOException(path + ": not a mapped map");
+            }
+            int width = header.getInt(8);
+            int height = header.getInt(12);
+            long rowBytes = 8L * height * ((width + 63) / 64);
+            long columnBytes = 8L * width * ((height + 63) / 64);
+            if (width <= 0 || height <= 0 || rowBytes > MAX_BYTES || columnBytes > MAX_BYTES) {
+                throw new IOException(path + ": " + width + "x" + height + " map does not fit in 2 GiB per orientation");
+            }
+            if (channel.size() < HEADER + rowBytes + columnBytes) {
+                throw new IOException(path + ": truncated");
+            }
+            LongBuffer rows = channel.map(FileChannel.MapMode.READ_ONLY, HEADER, rowBytes)
+                    .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            LongBuffer columns = channel.map(FileChannel.MapMode.READ_ONLY, HEADER + rowBytes, columnBytes)
+                    .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            return new MappedMap(header.getInt(16), header.getInt(20), width, height, rows, columns);
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Write a map to a file that open() can map.
+     * @param map map with its bits in mapX and mapY.
+     * @param path file to write; replaced if it exists.
+     * @throws IOException if the file cannot be written.
+     * @throws IllegalArgumentException if the rows or the columns of the map
+     * take 2 GiB or more, so that open() could not map them.
+     */
+    public static void write(Map map, String path) throws IOException {
+        int rowLongs = (map.width + 63) / 64;
+        int columnLongs = (map.height + 63) / 64;
+        long rowBytes = 8L * map.height * rowLongs;
+        long columnBytes = 8L * map.width * columnLongs;
+        if (rowBytes > MAX_BYTES || columnBytes > MAX_BYTES) {
+            throw new IllegalArgumentException(map.width + "x" + map.height
+                    + " map does not fit in 2 GiB per orientation");
+        }
+        
+        RandomAccessFile file = new RandomAccessFile(path, "rw");
+        try {
+            FileChannel channel = file.getChannel();
+            file.setLength(HEADER + rowBytes + columnBytes);
+            
+            ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            header.putLong(MAGIC).putInt(map.width).putInt(map.height).putInt(map.origin[0]).putInt(map.origin[1]);
+            header.clear();
+            channel.write(header, 0);
+            
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, HEADER, rowBytes);
+            LongBuffer longs = out.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            for (int y = 0; y < map.height; y++) {
+                longs.put(map.mapX[y], 0, rowLongs);
+            }
+            out.force();
+            
+            out = channel.map(FileChannel.MapMode.READ_WRITE, HEADER + rowBytes, columnBytes);
+            longs = out.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            for (int x = 0; x < map.width; x++) {
+                longs.put(map.mapY[x], 0, columnLongs);
+            }
+            out.force();
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * @return a scan over the rows of this map, for use in place of mapX.
+     */
+    public BitScan rowScan() {
+        return new MappedScan(rows, (width + 63) / 64);
+    }
+
+    /**
+     * @return a scan over the columns of this map, for use in place of mapY.
+     */
+    public BitScan colScan() {
+        return new MappedScan(columns, (height + 63) / 64);
+    }
+
+    @Override
+    void set(int x, int y, boolean blocked) {
+        throw new UnsupportedOperationException("MappedMap is read-only");
+    }
+
+    @Override
+    public void applyUpdates(int[] packedCells) {
+        throw new UnsupportedOperationException("MappedMap is read-only");
+    }
+
+    @Override
+    public void setTerrain(int x, int y, int terrainClass) {
+        throw new UnsupportedOperationException("MappedMap is read-only");
+    }
+
+    @Override
+    public void rebuildColumns() {
+        throw new UnsupportedOperationException("MappedMap is read-only");
+    }
+
+    @Override
+    long word(int y, int w) {
+        return rows.get(y * ((width + 63) / 64) + w);
+    }
+
+    @Override
+    public boolean isBlocked(int x, int y) {
+        return ((rows.get(y * ((width + 63) / 64) + x / 64) >>> (63 - (x % 64))) & 1L) == 1;
+    }
+}
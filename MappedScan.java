@@ -0,0 +1,122 @@
+package bytecodeNav;
+
+import java.nio.LongBuffer;
+
+/**
+ * BitScan that reads a bit array straight from a LongBuffer, e.g. the rows or
+ * the columns of a MappedMap. Row r of the array is the stride longs starting
+ * at index r * stride. The long[][] arguments of the BitScan methods are
+ * ignored; each MappedScan scans exactly one array.
+ *
+ * Scans continue across the longs of a row like IntrinsicScan. Like an array,
+ * a scan from outside of the bit array throws an IndexOutOfBoundsException.
+ *
+ * @author David
+ */
+public class MappedScan implements BitScan {
+
+    final LongBuffer bits;  // Longs of every row, one row after another.
+    final int stride;       // Number of longs in a row.
+
+    /**
+     * Constructor.
+     * @param bits longs of the bit array, read with absolute gets only.
+     * @param stride number of longs in a row.
+     */
+    public MappedScan(LongBuffer bits, int stride) {
+        this.bits = bits;
+        this.stride = stride;
+    }
+
+    public int distanceLeft(int x, int y, long[][] map) {
+        int shift = 63 - (x % 64);          // Amount to shift the first long's bits.
+        int index = index(x, y);            // Index of the current long.
+        int start = y * stride;             // Index of the first long of the row.
+        
+        // Least significant bit of i is our current position in the row.
+        long i = bits.get(index) >>> shift;
+        if (i != 0) {
+            return Long.numberOfTrailingZeros(i);
+        }
+        int distance = 64 - shift;
+        while (--index >= start) {
+            i = bits.get(index);
+            if (i != 0) {
+                return distance + Long.numberOfTrailingZeros(i);
+            }
+            distance += 64;
+        }
+        return distance;
+    }
+
+    public int distanceRight(int x, int y, long[][] map) {
+        int shift = x % 64;
+        int index = index(x, y);
+        int end = (y + 1) * stride;
+        
+        // Most significant bit of i is our current position in the row.
+        long i = bits.get(index) << shift;
+        if (i != 0) {
+            return Long.numberOfLeadingZeros(i);
+        }
+        int distance = 64 - shift;
+        while (++index < end) {
+            i = bits.get(index);
+            if (i != 0) {
+                return distance + Long.numberOfLeadingZeros(i);
+            }
+            distance += 64;
+        }
+        return distance;
+    }
+
+    public int distanceVoidLeft(int x, int y, long[][] map) {
+        int shift = 63 - (x % 64);
+        int index = index(x, y);
+        int start = y * stride;
+        
+        long i = ~bits.get(index) >>> shift;
+        if (i != 0) {
+            return Long.numberOfTrailingZeros(i);
+        }
+        int distance = 64 - shift;
+        while (--index >= start) {
+            i = ~bits.get(index);
+            if (i != 0) {
+                return distance + Long.numberOfTrailingZeros(i);
+            }
+            distance += 64;
+        }
+        return distance;
+    }
+
+    public int distanceVoidRight(int x, int y, long[][] map) {
+        int shift = x % 64;
+        int index = index(x, y);
+        int end = (y + 1) * stride;
+        
+        long i = ~bits.get(index) << shift;
+        if (i != 0) {
+            return Long.numberOfLeadingZeros(i);
+        }
+        int distance = 64 - shift;
+        while (++index < end) {
+            i = ~bits.get(index);
+            if (i != 0) {
+                return distance + Long.numberOfLeadingZeros(i);
+            }
+            distance += 64;
+        }
+        return distance;
+    }
+
+    /**
+     * @return index of the long at (x,y).
+     */
+    private int index(int x, int y) {
+        if ((x >>> 6) >= stride) {
+            throw new IndexOutOfBoundsException("x = " + x);
+        }
+        return y * stride + (x >>> 6);
+    }
+}
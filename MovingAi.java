@@ -0,0 +1,108 @@
+package bytecodeNav;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+
+/**
+ * Loader for the grid benchmark formats of the Moving AI Lab,
+ * https://movingai.com/benchmarks/formats.html
+ *
+ * - A .map file is loaded straight into the bit arrays of a Map. '.', 'G' and
+ *   'S' are walkable, every other terrain is not. Real coords are the map's
+ *   column and row. The grid starts at map coords (1,1) so that it is framed
+ *   by non-walkable squares; every square of the Map outside of the grid is
+ *   non-walkable.
+ * - A .scen file is loaded into a Scenarios object.
+ *
+ * @author David
+ */
+public class MovingAi {
+
+    /**
+     * Load a .map file.
+     * @param path file to load.
+     * @return Map holding the grid, two squares wider and taller than it.
+     * @throws IOException if the file cannot be read or is not a .map file.
+     */
+    public static Map loadMap(String path) throws IOException {
+        BufferedReader in = new BufferedReader(new FileReader(path));
+        try {
+            int width = -1, height = -1;
+            String line;
+            while ((line = in.readLine()) != null && !line.trim().equals("map")) {
+                String[] field = line.trim().split("\\s+");
+                if (field[0].equals("height")) {
+                    height = Integer.parseInt(field[1]);
+                } else if (field[0].equals("width")) {
+                    width = Integer.parseInt(field[1]);
+                }
+            }
+            if (line == null || width < 0 || height < 0) {
+                throw new IOException(path + ": missing width, height or map section");
+            }
+            
+            // Real coord (x,y) is at map coord (x+1,y+1).
+            Map map = new Map((width + 2) / 2 - 1, (height + 2) / 2 - 1, width + 2, height + 2);
+            long[][] mapX = map.mapX;
+            for (int y = 0; y < map.height; y++) {
+                int row = y - 1;    // Row of the grid at map coord y.
+                line = row >= 0 && row < height ? in.readLine() : null;
+                if (row >= 0 && row < height && (line == null || line.length() < width)) {
+                    throw new IOException(path + ": row " + row + " is shorter than " + width);
+                }
+                for (int x = 0; x < map.width; x++) {
+                    int col = x - 1;
+                    if (line == null || col < 0 || col >= width || !walkable(line.charAt(col))) {
+                        mapX[y][x / 64] |= 1L << (63 - (x % 64));
+                    }
+                }
+            }
+            map.rebuildColumns();
+            return map;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * @param terrain terrain of a square in a .map file.
+     * @return true if the square is walkable.
+     */
+    static boolean walkable(char terrain) {
+        return terrain == '.' || terrain == 'G' || terrain == 'S';
+    }
+
+    /**
+     * Load a .scen file.
+     * @param path file to load.
+     * @return the scenarios in the file, in order.
+     * @throws IOException if the file cannot be read or is not a .scen file.
+     */
+    public static Scenarios loadScenarios(String path) throws IOException {
+        BufferedReader in = new BufferedReader(new FileReader(path));
+        try {
+            Scenarios scenarios = new Scenarios();
+            String line = in.readLine();
+            if (line == null || !line.startsWith("version")) {
+                throw new IOException(path + ": missing version line");
+            }
+            while ((line = in.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                // bucket, map, map width, map height, start x, start y, goal x, goal y, optimal length
+                String[] field = line.split("\t");
+                if (field.length < 9) {
+                    throw new IOException(path + ": expected 9 fields in \"" + line + "\"");
+                }
+                scenarios.add(Integer.parseInt(field[4]), Integer.parseInt(field[5]),
+                        Integer.parseInt(field[6]), Integer.parseInt(field[7]),
+                        Double.parseDouble(field[8]));
+            }
+            return scenarios;
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package bytecodeNav;
+
+/**
+ * BitScan backed by NavTools, for running inside Battlecode. Like NavTools,
+ * it only works on maps with rows of four longs (256x256).
+ *
+ * @author David
+ */
+public class NavToolsScan implements BitScan {
+
+    public int distanceLeft(int x, int y, long[][] map) {
+        return NavTools.distanceLeft(x, y, map);
+    }
+
+    public int distanceRight(int x, int y, long[][] map) {
+        return NavTools.distanceRight(x, y, map);
+    }
+
+    public int distanceVoidLeft(int x, int y, long[][] map) {
+        return NavTools.distanceVoidLeft(x, y, map);
+    }
+
+    public int distanceVoidRight(int x, int y, long[][] map) {
+        return NavTools.distanceVoidRight(x, y, map);
+    }
+}
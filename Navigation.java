@@ -29,6 +29,7 @@ public class Navigation {
         int[] end = new int[]{133,133};     // Search to these coordinates
 
         Navigation n = new Navigation(128, 128, start[0], start[1]);
+        Map map = n.map;
 
         // Populate two bit arrays based on a String representation of the map in the TestMaps class.
         map.mapX = TestMaps.getXMap();            // Bit array to represent rows.
@@ -37,12 +38,12 @@ public class Navigation {
         int roundNum = Clock.getRoundNum();
         
         // Try to move once per round.
-        searching = true;
-        while (searching) {
-            boolean moved = tryMove(end);
+        n.searching = true;
+        while (n.searching) {
+            boolean moved = n.tryMove(end);
             if (moved) {
                 
-                System.out.println("nextPt: ("+ nextPt[0] +"," + nextPt[1]+")");
+                System.out.println("nextPt: ("+ n.nextPt[0] +"," + n.nextPt[1]+")");
             }
             rc.yield();
         }
@@ -53,15 +54,16 @@ public class Navigation {
             
                 // If this location exists in the path, print the direction taken from this point.
                 boolean notVisited = true;
-                if (pathStart != null) {
-                    JumpPoint path = new JumpPoint(pathStart);
-                    while (path != null) {
-                        if (path.x == j && path.y == i) {
-                            System.out.print(path.direction + " ");
+                if (n.pathStart != NodeArena.NONE) {
+                    NodeArena nodes = n.context.getNodes();
+                    int path = n.pathStart;
+                    while (path != NodeArena.NONE) {
+                        if (nodes.getX(path) == j && nodes.getY(path) == i) {
+                            System.out.print(nodes.getDirection(path) + " ");
                             notVisited = false;
                             break;
                         } else {
-                            path = path.mapNext;
+                            path = nodes.next(path);
                         }
                     }
                 }
@@ -80,17 +82,17 @@ public class Navigation {
         }
     }
 
-    static Map map;    // Map object to hold the bit arrays and the origin.
-    static HashQueue heap;  // Priority heap for the current search.
-    static JumpPoint pathStart;
-    static int[] nextPt;
-    static boolean searching, reachedGoal;
-    public static final int bytecodeLimit = 2000;
+    final Map map;    // Map object to hold the bit arrays and the origin.
+    final SearchContext context;    // Search engine working on the map.
+    int pathStart;      // First node of the path, in the context's NodeArena.
+    int[] nextPt;
+    boolean searching;
 
     /**
      * Constructor. Origin will be shifted to the center of a 256x256 map to
      * prevent indices from going out of bounds for maps up to 128x128 bits
-     * regardless of where the actual center of the map is.
+     * regardless of where the actual center of the map is. Each Navigation
+     * object searches with its own SearchContext.
      *
      * @param x coordinate of the origin of the map.
      * @param y coordinate of the origin of the map.
@@ -99,25 +101,41 @@ public class Navigation {
      */
     public Navigation(int x, int y, int myX, int myY) {
         map = new Map(x, y);
+        context = new SearchContext(map, new BytecodeBudget());
         nextPt = new int[]{myX,myY};
-        reachedGoal = false;
         searching = false;
-        pathStart = null;
-        heap = null;
+        pathStart = NodeArena.NONE;
     }
     
-    public static boolean tryMove(int[] goal) {
+    /**
+     * Constructor for navigating a static map with JPS+, which looks jump
+     * points up in a table built once for the map instead of scanning for them.
+     *
+     * @param table jump table of the map. May be shared by Navigation objects.
+     * @param myX current location's x-coordinate.
+     * @param myY current location's y-coordinate.
+     */
+    public Navigation(JumpTable table, int myX, int myY) {
+        map = table.map;
+        context = new SearchContext(table, new BytecodeBudget());
+        nextPt = new int[]{myX,myY};
+        searching = false;
+        pathStart = NodeArena.NONE;
+    }
+    
+    public boolean tryMove(int[] goal) {
         boolean moved;
-        JumpPoint path;
-         if (heap != null) {
+        int path;
+         if (context.heap != null) {
             // Continue a previous search
-            path = getPath(null,null);
-        } else if (!reachedGoal) {
-            path = getPath(nextPt,goal);
+            path = context.resume();
+        } else if (!context.reachedGoal()) {
+            path = context.getPath(nextPt,goal);
         } else {
-            path = null;
+            path = NodeArena.NONE;
         }
-        if (reachedGoal) {
+        searching = context.isSearching();
+        if (context.reachedGoal()) {
             pathStart = path;
         }
         return false;
@@ -192,515 +210,4 @@ public class Navigation {
         }
         return location;
     }
-    
-    /**
-     * Resume the previous search.
-     *
-     * @return
-     */
-    public static JumpPoint resume() {
-        return getPath(null, null);
-    }
-
-    /**
-     * Search for a path from point a to point b.
-     *
-     * @param a start of the path.
-     * @param b end of the path.
-     * @return the JumpPoint object at the start of this path, or null if there
-     * is no path.
-     */
-    public static JumpPoint getPath(int[] a, int[] b) {
-        searching = true;
-        if (a != null) {
-            heap = new HashQueue(a[0], a[1], b[0], b[1]);
-            reachedGoal = false;
-            pathStart = null;
-        }
-        
-        int goalX = heap.goalX;
-        int goalY = heap.goalY;
-        // distances from location to next void (x = stepX, y = stepY)
-        int stepX, stepY;
-        stepX = -1;
-        stepY = -1;
-        // previous distances (x-1 = lastStepX, y-1 = lastStepY)
-        int lastStepX, lastStepY;
-        
-        try {
-            while (heap.size != 0 && Clock.getBytecodesLeft() > bytecodeLimit) {
-                // Get the next node
-                JumpPoint next = heap.remove();
-                
-                // Position of the next Node
-                int x = next.x;
-                int y = next.y;
-
-
-                switch (next.direction) {    // determine the direction of movement
-
-                    case 1: // direction = NE
-
-                        if (next.distanceX >= 0) {
-                            lastStepX = next.distanceX;
-                            lastStepY = next.distanceY;
-                        } else {
-                        // initialize as the distance from this node to x and y voids
-                            lastStepX = NavTools.distanceRight(x, y, map.mapX);
-                            lastStepY = NavTools.distanceLeft(y, x, map.mapY);
-                        }
-                        
-                        if (lastStepX != 0) {
-                        
-                            int time1 = Clock.getBytecodesLeft();
-                            // check if the goal is directly reachable from this location
-                            if (goalX == x) {
-                                if (goalY <= y && goalY >= y - NavTools.distanceLeft(y, x, map.mapY)) {
-                                    next.mapNext = new JumpPoint(goalX, goalY, next, 0, 0);
-                                    next.mapNext.mapLast = next;
-                                    searching = false;
-                                    reachedGoal = true;
-                                    return heap.retrace(next);
-                                } else if (goalY >= y && goalY <= y + NavTools.distanceRight(y, x, map.mapY)) {
-                                    next.mapNext = new JumpPoint(goalX, goalY, next, 0, 0);
-                                    next.mapNext.mapLast = next;
-                                    searching = false;
-                                    reachedGoal = true;
-                                    return heap.retrace(next);
-                                }
-                            } else if (goalY == y) {
-                                if (goalX <= x && goalX >= x - NavTools.distanceLeft(x, y, map.mapX)) {
-                                    next.mapNext = new JumpPoint(goalX, goalY, next, 0, 0);
-                                    next.mapNext.mapLast = next;
-                                    searching = false;
-                                    reachedGoal = true;
-                                    return heap.retrace(next);
-                                } else if (goalX >= x && goalX <= x + NavTools.distanceRight(x, y, map.mapX)) {
-                                    next.mapNext = new JumpPoint(goalX, goalY, next, 0, 0);
-                                    next.mapNext.mapLast = next;
-                                    searching = false;
-                                    reachedGoal = true;
-                                    return heap.retrace(next);
-                                }
-                            }
-
-                            // step = distances to x and y voids & properly increment/decrement location
-                            stepX = NavTools.distanceRight(++x, --y, map.mapX);
-                            stepY = NavTools.distanceLeft(y, x, map.mapY);
-
-                            // difference between last and current distances
-                            int dX = stepX - lastStepX; // should be -1
-
-                            if (dX >= 0) { // if x difference is greater than -1
-
-                                // check the number of consecutive voids at previous location + distanceRight of X
-                                int voids = NavTools.distanceVoidRight(x + lastStepX - 1, y + 1, map.mapX);
-
-                                // if the new difference is -1 or greater, add a new Node to the queue
-                                if (dX - voids >= -1) {
-                                    int distance = voids + lastStepX - 2;
-                                    // new direction is SE
-                                    heap.insert(new JumpPoint(x + distance, y, next, 3, distance + 1 + next.distance));
-                                }
-
-                            } else if (dX < -1) { // if x difference is less than -1
-
-                                // check the number of consecutive voids at current location + distanceRight of X
-                                int voids = NavTools.distanceVoidRight(x + stepX, y, map.mapX);
-
-                                // if the new difference is less than 0, add a new Node to the queue
-                                if (dX + voids < 0) {
-                                    // new direction is NE
-                                    int distance = voids + stepX - 1;
-                                    heap.insert(new JumpPoint(x + distance, y + 1, next, 1, distance + 1 + next.distance));
-                                }
-                            }
-
-                            int dY = stepY - lastStepY; // should be -1
-
-                            if (dY >= 0) { // if y difference is greater than -1
-
-                                // check the number of consecutive voids at previous location - distanceLeft of Y
-                                int voids = NavTools.distanceVoidLeft(y - lastStepY + 1, x - 1, map.mapY);
-
-                                // if the new difference is -1 or greater, add a new Node to the queue
-                                if (dY - voids >= -1) {
-                                    // new direction is SE, need two waypoints
-                                    int distance = voids + lastStepY - 2;
-                                    heap.insert(new JumpPoint(x, y - distance, next, 7, distance + 1 + next.distance));
-                                }
-
-                            } else if (dY < -1) { // if y difference is less than -1
-
-                                // check the number of consecutive voids at current location - distanceLeft of Y
-                                int voids = NavTools.distanceVoidLeft(y - stepY, x, map.mapY);
-
-                                // if the new difference is less than 0, add a new Node to the queue
-                                if (dY + voids < 0) {
-                                    // new direction is NW, need two waypoints
-                                    int distance = voids + stepY - 1;
-                                    heap.insert(new JumpPoint(x - 1, y - distance, next, 1, distance + 1 + next.distance));
-                                }
-                            }
-                            
-                            time1 -= Clock.getBytecodesLeft();
-                            System.out.println(time1);
-                        }
-                        break;
-
-                    case 3: // direction = SE
-                    
-                        if (next.distanceX >= 0) {
-                            lastStepX = next.distanceX;
-                            lastStepY = next.distanceY;
-                        } else {
-                            // initialize as the distance from this node to x and y voids
-                            lastStepX = NavTools.distanceRight(x, y, map.mapX);
-                            lastStepY = NavTools.distanceRight(y, x, map.mapY);
-                        }
-                        
-                        if (lastStepX != 0) {
-                        
-                            int time1 = Clock.getBytecodesLeft();
-
-                            // check if the goal is directly reachable from this location
-                            if (goalX == x) {
-                                if (goalY <= y && goalY >= y - NavTools.distanceLeft(y, x, map.mapY)) {
-                                    next.mapNext = new JumpPoint(goalX, goalY, next, 0, 0);
-                                    next.mapNext.mapLast = next;
-                                    searching = false;
-                                    reachedGoal = true;
-                                    return heap.retrace(next);
-                                } else if (goalY >= y && goalY <= y + NavTools.distanceRight(y, x, map.mapY)) {
-                                    next.mapNext = new JumpPoint(goalX, goalY, next, 0, 0);
-                                    next.mapNext.mapLast = next;
-                                    searching = false;
-                                    reachedGoal = true;
-                                    return heap.retrace(next);
-                                }
-                            } else if (goalY == y) {
-                                if (goalX <= x && goalX >= x - NavTools.distanceLeft(x, y, map.mapX)) {
-                                    next.mapNext = new JumpPoint(goalX, goalY, next, 0, 0);
-                                    next.mapNext.mapLast = next;
-                                    searching = false;
-                                    reachedGoal = true;
-                                    return heap.retrace(next);
-                                } else if (goalX >= x && goalX <= x + NavTools.distanceRight(x, y, map.mapX)) {
-                                    next.mapNext = new JumpPoint(goalX, goalY, next, 0, 0);
-                                    next.mapNext.mapLast = next;
-                                    searching = false;
-                                    reachedGoal = true;
-                                    return heap.retrace(next);
-                                }
-                            }
-
-                            // step = distances to x and y voids & properly increment/decrement location
-                            stepX = NavTools.distanceRight(++x, ++y, map.mapX);
-                            stepY = NavTools.distanceRight(y, x, map.mapY);
-
-                            // difference between last and current distances
-                            int dX = stepX - lastStepX; // should be -1
-
-                            if (dX >= 0) { // if x difference is greater than -1
-
-                                // check the number of consecutive voids at previous location + distanceRight of X
-                                int voids = NavTools.distanceVoidRight(x + lastStepX - 1, y - 1, map.mapX);
-
-                                // if the new difference is -1 or greater, add a new Node to the queue
-                                if (dX - voids >= -1) {
-                                    // new direction is SE
-                                    int distance = voids + lastStepX - 2;
-                                    heap.insert(new JumpPoint(x + distance, y, next, 1, distance + 1 + next.distance));
-                                }
-
-                            } else if (dX < -1) { // if x difference is less than -1
-
-                                // check the number of consecutive voids at current location + distanceRight of X
-                                int voids = NavTools.distanceVoidRight(x + stepX, y, map.mapX);
-
-                                // if the new difference is less than 0, add a new Node to the queue
-                                if (dX + voids < 0) {
-                                    // new direction is NE
-                                    int distance = voids + stepX - 1;
-                                    heap.insert(new JumpPoint(x + distance, y - 1, next, 3, distance + 1 + next.distance));
-                                }
-                            }
-
-                            int dY = stepY - lastStepY; // should be -1
-
-                            if (dY >= 0) { // if y difference is greater than -1
-
-                                // check the number of consecutive voids at previous location + distanceRight of Y
-                                int voids = NavTools.distanceVoidRight(y + lastStepY - 1, x - 1, map.mapY);
-
-                                // if the new difference is -1 or greater, add a new Node to the queue
-                                if (dY - voids >= -1) {
-                                    // new direction is SE
-                                    int distance = voids + lastStepY - 2;
-                                    heap.insert(new JumpPoint(x, y + distance, next, 5, distance + 1 + next.distance));
-                                }
-
-                            } else if (dY < -1) { // if y difference is less than -1
-
-                                // check the number of consecutive voids at current location + distanceRight of Y
-                                int voids = NavTools.distanceVoidRight(y + stepY, x, map.mapY);
-
-                                // if the new difference is less than 0, add a new Node to the queue
-                                if (dY + voids < 0) {
-                                    // new direction is NW
-                                    int distance = voids + stepY - 1;
-                                    heap.insert(new JumpPoint(x - 1, y + distance, next, 3, distance + 1 + next.distance));
-                                }
-                            }
-                            
-                            time1 -= Clock.getBytecodesLeft();
-                            System.out.println(time1);
-                        }
-                        break;
-
-                    case 5: // direction = SW
-                    
-                        if (next.distanceX >= 0) {
-                            lastStepX = next.distanceX;
-                            lastStepY = next.distanceY;
-                        } else {
-                            // initialize as the distance from this node to x and y voids
-                            lastStepX = NavTools.distanceLeft(x, y, map.mapX);
-                            lastStepY = NavTools.distanceRight(y, x, map.mapY);
-                        }
-                        
-                        if (lastStepX != 0) {
-                            int time1 = Clock.getBytecodesLeft();
-
-                            // check if the goal is directly reachable from this location
-                            if (goalX == x) {
-                                if (goalY <= y && goalY >= y - NavTools.distanceLeft(y, x, map.mapY)) {
-                                    next.mapNext = new JumpPoint(goalX, goalY, next, 0, 0);
-                                    next.mapNext.mapLast = next;
-                                    searching = false;
-                                    reachedGoal = true;
-                                    return heap.retrace(next);
-                                } else if (goalY >= y && goalY <= y + NavTools.distanceRight(y, x, map.mapY)) {
-                                    next.mapNext = new JumpPoint(goalX, goalY, next, 0, 0);
-                                    next.mapNext.mapLast = next;
-                                    searching = false;
-                                    reachedGoal = true;
-                                    return heap.retrace(next);
-                                }
-                            } else if (goalY == y) {
-                                if (goalX <= x && goalX >= x - NavTools.distanceLeft(x, y, map.mapX)) {
-                                    next.mapNext = new JumpPoint(goalX, goalY, next, 0, 0);
-                                    next.mapNext.mapLast = next;
-                                    searching = false;
-                                    reachedGoal = true;
-                                    return heap.retrace(next);
-                                } else if (goalX >= x && goalX <= x + NavTools.distanceRight(x, y, map.mapX)) {
-                                    next.mapNext = new JumpPoint(goalX, goalY, next, 0, 0);
-                                    next.mapNext.mapLast = next;
-                                    searching = false;
-                                    reachedGoal = true;
-                                    return heap.retrace(next);
-                                }
-                            }
-
-                            // step = distances to x and y voids & properly increment/decrement location
-                            stepX = NavTools.distanceLeft(--x, ++y, map.mapX);
-                            stepY = NavTools.distanceRight(y, x, map.mapY);
-
-                            // difference between last and current distances
-                            int dX = stepX - lastStepX; // should be -1
-
-                            if (dX >= 0) { // if x difference is greater than -1
-
-                                // check the number of consecutive voids at previous location - distanceLeft of X
-                                int voids = NavTools.distanceVoidLeft(x - lastStepX + 1, y - 1, map.mapX);
-
-                                // if the new difference is -1 or greater, add a new Node to the queue
-                                if (dX - voids >= -1) {
-                                    // new direction is NW
-                                    int distance = voids + lastStepX - 2;
-                                    heap.insert(new JumpPoint(x - distance, y, next, 7, distance + 1 + next.distance));
-                                }
-
-                            } else if (dX < -1) { // if x difference is less than -1
-
-                                // check the number of consecutive voids at current location - distanceLeft of X
-                                int voids = NavTools.distanceVoidLeft(x - stepX, y, map.mapX);
-
-                                // if the new difference is less than 0, add a new Node to the queue
-                                if (dX + voids < 0) {
-                                    // new direction is NE
-                                    int distance = voids + stepX - 1;
-                                    heap.insert(new JumpPoint(x - distance, y - 1, next, 5, distance + 1 + next.distance));
-                                }
-                            }
-
-                            int dY = stepY - lastStepY; // should be -1
-
-                            if (dY >= 0) { // if y difference is greater than -1
-
-                                // check the number of consecutive voids at previous location + distanceRight of Y
-                                int voids = NavTools.distanceVoidRight(y + lastStepY - 1, x + 1, map.mapY);
-
-                                // if the new difference is -1 or greater, add a new Node to the queue
-                                if (dY - voids >= -1) {
-                                    // new direction is SE, need two waypoints
-                                    int distance = voids + lastStepY - 2;
-                                    heap.insert(new JumpPoint(x, y + distance, next, 3, distance + 1 + next.distance));
-                                }
-
-                            } else if (dY < -1) { // if y difference is less than -1
-
-                                // check the number of consecutive voids at current location + distanceRight of Y
-                                int voids = NavTools.distanceVoidRight(y + stepY, x, map.mapY);
-
-                                // if the new difference is less than 0, add a new Node to the queue
-                                if (dY + voids < 0) {
-                                    // new direction is NW, need two waypoints
-                                    int distance = voids + stepY - 1;
-                                    heap.insert(new JumpPoint(x + 1, y + distance, next, 5, distance + 1 + next.distance));
-                                }
-                            }
-                            
-                            time1 -= Clock.getBytecodesLeft();
-                            System.out.println(time1);
-                        }
-                        break;
-
-                    default: // direction = NW
-                        if (next.distanceX >= 0) {
-                            lastStepX = next.distanceX;
-                            lastStepY = next.distanceY;
-                        } else {
-                            // initialize as the distance from this node to x and y voids
-                            lastStepX = NavTools.distanceLeft(x, y, map.mapX);
-                            lastStepY = NavTools.distanceLeft(y, x, map.mapY);
-                        }
-                        
-                        if (lastStepX != 0) {
-                        
-                            int time1 = Clock.getBytecodesLeft();
-
-                            // check if the goal is directly reachable from this location
-                            if (goalX == x) {
-                                if (goalY <= y && goalY >= y - NavTools.distanceLeft(y, x, map.mapY)) {
-                                    next.mapNext = new JumpPoint(goalX, goalY, next, 0, 0);
-                                    next.mapNext.mapLast = next;
-                                    searching = false;
-                                    reachedGoal = true;
-                                    return heap.retrace(next);
-                                } else if (goalY >= y && goalY <= y + NavTools.distanceRight(y, x, map.mapY)) {
-                                    next.mapNext = new JumpPoint(goalX, goalY, next, 0, 0);
-                                    next.mapNext.mapLast = next;
-                                    searching = false;
-                                    reachedGoal = true;
-                                    return heap.retrace(next);
-                                }
-                            } else if (goalY == y) {
-                                if (goalX <= x && goalX >= x - NavTools.distanceLeft(x, y, map.mapX)) {
-                                    next.mapNext = new JumpPoint(goalX, goalY, next, 0, 0);
-                                    next.mapNext.mapLast = next;
-                                    searching = false;
-                                    reachedGoal = true;
-                                    return heap.retrace(next);
-                                } else if (goalX >= x && goalX <= x + NavTools.distanceRight(x, y, map.mapX)) {
-                                    next.mapNext = new JumpPoint(goalX, goalY, next, 0, 0);
-                                    next.mapNext.mapLast = next;
-                                    searching = false;
-                                    reachedGoal = true;
-                                    return heap.retrace(next);
-                                }
-                            }
-
-                            // step = distances to x and y voids & properly increment/decrement location
-                            stepX = NavTools.distanceLeft(--x, --y, map.mapX);
-                            stepY = NavTools.distanceLeft(y, x, map.mapY);
-
-                            // difference between last and current distances
-                            int dX = stepX - lastStepX; // should be -1
-
-                            if (dX >= 0) { // if x difference is greater than -1
-
-                                // check the number of consecutive voids at previous location - distanceLeft of X
-                                int voids = NavTools.distanceVoidLeft(x - lastStepX + 1, y + 1, map.mapX);
-
-                                // if the new difference is -1 or greater, add a new Node to the queue
-                                if (dX - voids >= -1) {
-                                    // new direction is NW
-                                    int distance = voids + lastStepX - 2;
-                                    heap.insert(new JumpPoint(x - distance, y, next, 5, distance + 1 + next.distance));
-                                }
-
-                            } else if (dX < -1) { // if x difference is less than -1
-
-                                // check the number of consecutive voids at current location - distanceLeft of X
-                                int voids = NavTools.distanceVoidLeft(x - stepX, y, map.mapX);
-
-                                // if the new difference is less than 0, add a new Node to the queue
-                                if (dX + voids < 0) {
-                                    // new direction is NE
-                                    int distance = voids + stepX - 1;
-                                    heap.insert(new JumpPoint(x - distance, y + 1, next, 7, distance + 1 + next.distance));
-                                }
-                            }
-
-                            int dY = stepY - lastStepY; // should be -1
-
-                            if (dY >= 0) { // if y difference is greater than -1
-
-                                // check the number of consecutive voids at previous location - distanceLeft of Y
-                                int voids = NavTools.distanceVoidLeft(y - lastStepY + 1, x + 1, map.mapY);
-
-                                // if the new difference is -1 or greater, add a new Node to the queue
-                                if (dY - voids >= -1) {
-                                    // new direction is SE
-                                    int distance = voids + lastStepY - 2;
-                                    heap.insert(new JumpPoint(x, y - distance, next, 1, distance + 1 + next.distance));
-                                }
-
-                            } else if (dY < -1) { // if y difference is less than -1
-
-                                // check the number of consecutive voids at current location - distanceLeft of Y
-                                int voids = NavTools.distanceVoidLeft(y - stepY, x, map.mapY);
-
-                                // if the new difference is less than 0, add a new Node to the queue
-                                if (dY + voids < 0) {
-                                    // new direction is NW
-                                    int distance = voids + stepY - 1;
-                                    heap.insert(new JumpPoint(x + 1, y - distance, next, 7, distance + 1 + next.distance));
-                                }
-                            }
-                            
-                            time1 -= Clock.getBytecodesLeft();
-                            System.out.println(time1);
-                        }
-                        break;
-                }
-                
-                if (stepX > 0) {
-                    JumpPoint newJumpPoint = new JumpPoint(x,y, next, next.direction,1+next.distance);
-                    newJumpPoint.distanceY = stepY;
-                    newJumpPoint.distanceX = stepX;
-                    heap.insert(newJumpPoint);
-                    
-                    if (Clock.getBytecodesLeft() < bytecodeLimit + 500) {
-                    
-                        JumpPoint out = heap.retrace(next);
-                    
-                        return out;
-                    }
-                }
-            }
-        } catch (ArrayIndexOutOfBoundsException e) {
-            if (heap.size != 0) {
-                if (Clock.getBytecodesLeft() > bytecodeLimit + 500) {
-                    return getPath(null,null);
-                } else {
-                    return heap.retrace(heap.peek(heap.peek()));
-                }
-            }
-        }
-        searching = false;
-        return null;
-    }
 }
@@ -0,0 +1,144 @@
+package bytecodeNav;
+
+import java.util.Arrays;
+
+/**
+ * Storage for the nodes of a search. Each node is an int handle into parallel
+ * arrays of primitives, so expanding a node does not create any objects. An
+ * arena is emptied with clear() and reused by the next search; its arrays only
+ * grow while the arena is warming up to the largest search it has seen.
+ *
+ * A node holds the same data a JumpPoint does, and detached JumpPoint copies of
+ * a path can be made with toJumpPoint() for code outside of the search.
+ *
+ * @author David
+ */
+public class NodeArena {
+
+    public static final int NONE = -1;  // Handle that does not refer to a node.
+
+    int[] x, y;             // Coordinates of each node.
+    int[] direction;        // Direction of search from each node.
+    int[] distance;         // Distance traveled to each node, g(n).
+    int[] score;            // Result of the heuristic function f(n) = h(n) + g(n).
+    int[] mapLast;          // Node behind each node in its path.
+    int[] mapNext;          // Node following each node in its path.
+    int[] hashNext;         // Next node in the same bucket of a HashQueue.
+    int[] distanceX, distanceY; // Distances from each node to a void, or -1.
+    int size;               // Number of nodes in use.
+
+    /**
+     * Constructor.
+     * @param capacity number of nodes to make room for.
+     */
+    public NodeArena(int capacity) {
+        x = new int[capacity];
+        y = new int[capacity];
+        direction = new int[capacity];
+        distance = new int[capacity];
+        score = new int[capacity];
+        mapLast = new int[capacity];
+        mapNext = new int[capacity];
+        hashNext = new int[capacity];
+        distanceX = new int[capacity];
+        distanceY = new int[capacity];
+    }
+
+    /**
+     * Release every node for reuse. Handles from before the call are invalid.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Create a node.
+     * @param xLoc x-coordinate of the node.
+     * @param yLoc y-coordinate of the node.
+     * @param last node behind the new node in its path, or NONE.
+     * @param dir direction of search from the new node.
+     * @param dist distance traveled to the new node.
+     * @return handle of the new node.
+     */
+    public int add(int xLoc, int yLoc, int last, int dir, int dist) {
+        int n = size++;
+        if (n == x.length) {
+            grow();
+        }
+        x[n] = xLoc;
+        y[n] = yLoc;
+        direction[n] = dir;
+        distance[n] = dist;
+        score[n] = dist;
+        mapLast[n] = last;
+        mapNext[n] = NONE;
+        hashNext[n] = NONE;
+        distanceX[n] = -1;
+        distanceY[n] = -1;
+        return n;
+    }
+
+    /**
+     * Double the capacity of every array.
+     */
+    private void grow() {
+        int capacity = x.length * 2 + 16;
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        direction = Arrays.copyOf(direction, capacity);
+        distance = Arrays.copyOf(distance, capacity);
+        score = Arrays.copyOf(score, capacity);
+        mapLast = Arrays.copyOf(mapLast, capacity);
+        mapNext = Arrays.copyOf(mapNext, capacity);
+        hashNext = Arrays.copyOf(hashNext, capacity);
+        distanceX = Arrays.copyOf(distanceX, capacity);
+        distanceY = Arrays.copyOf(distanceY, capacity);
+    }
+
+    public int getX(int n) {
+        return x[n];
+    }
+
+    public int getY(int n) {
+        return y[n];
+    }
+
+    public int getDirection(int n) {
+        return direction[n];
+    }
+
+    public int getDistance(int n) {
+        return distance[n];
+    }
+
+    /**
+     * @param n node in a path.
+     * @return the node following n in its path, or NONE.
+     */
+    public int next(int n) {
+        return mapNext[n];
+    }
+
+    /**
+     * Copy a path into detached JumpPoint objects.
+     * @param n node at the start of the path.
+     * @return the JumpPoint at the start of the copied path, or null if n is NONE.
+     */
+    public JumpPoint toJumpPoint(int n) {
+        JumpPoint first = null;
+        JumpPoint last = null;
+        while (n != NONE) {
+            JumpPoint jp = new JumpPoint(x[n], y[n], distance[n]);
+            jp.direction = direction[n];
+            jp.mapLast = last;
+            if (last == null) {
+                first = jp;
+            } else {
+                last.mapNext = jp;
+            }
+            last = jp;
+            n = mapNext[n];
+        }
+        return first;
+    }
+}
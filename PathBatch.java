@@ -0,0 +1,54 @@
+package bytecodeNav;
+
+/**
+ * Paths found by a BatchSolver, packed into two int arrays: the waypoints of
+ * path i are points[offsets[i] * 2] to points[offsets[i + 1] * 2 - 1], as x,y
+ * pairs from the start to the goal. The waypoints are the nodes of the path
+ * the query's SearchContext found, so JPS+ paths have consecutive waypoints
+ * lined up straight or diagonally. A query without a path has no waypoints.
+ *
+ * @author David
+ */
+public class PathBatch {
+
+    final int[] offsets;    // Index of the first waypoint of each path; one more entry than paths.
+    final int[] points;     // x,y of every waypoint.
+
+    PathBatch(int[] offsets, int[] points) {
+        this.offsets = offsets;
+        this.points = points;
+    }
+
+    /**
+     * @return number of queries.
+     */
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * @param path index of a query.
+     * @return number of waypoints of its path, or 0 if there is no path.
+     */
+    public int length(int path) {
+        return offsets[path + 1] - offsets[path];
+    }
+
+    /**
+     * @param path index of a query.
+     * @param i index of a waypoint of its path.
+     * @return x-coordinate of the waypoint.
+     */
+    public int x(int path, int i) {
+        return points[(offsets[path] + i) * 2];
+    }
+
+    /**
+     * @param path index of a query.
+     * @param i index of a waypoint of its path.
+     * @return y-coordinate of the waypoint.
+     */
+    public int y(int path, int i) {
+        return points[(offsets[path] + i) * 2 + 1];
+    }
+}
@@ -0,0 +1,108 @@
+package bytecodeNav;
+
+/**
+ * Walks a path one square at a time. A path only holds its jump points; the
+ * cursor fills in the squares between them lazily, diagonally first and then
+ * straight, as Navigation.directionTo() does. A PathCursor allocates nothing
+ * once made and can be reset to any number of paths, so a unit may keep one
+ * for its whole life and take one step per round in O(1).
+ *
+ * @author David
+ */
+public class PathCursor {
+
+    // Direction of a step by (dy + 1) * 3 + dx + 1, or -1 for no step.
+    static final int[] DIRECTIONS = { 7, 0, 1, 6, -1, 2, 5, 4, 3 };
+
+    NodeArena nodes;        // Storage of a path of nodes, or null.
+    int target;             // Next node of the path to walk to, or NONE.
+    JumpPoint targetPoint;  // Next JumpPoint of the path to walk to, or null.
+    int x, y;               // Current square.
+
+    /**
+     * Start walking a path of nodes.
+     * @param n storage of the path.
+     * @param start node at the start of the path, or NONE for no path.
+     */
+    public void reset(NodeArena n, int start) {
+        nodes = n;
+        targetPoint = null;
+        target = NodeArena.NONE;
+        if (start != NodeArena.NONE) {
+            x = n.x[start];
+            y = n.y[start];
+            target = n.mapNext[start];
+        }
+    }
+
+    /**
+     * Start walking a path of detached JumpPoints.
+     * @param start JumpPoint at the start of the path, or null for no path.
+     */
+    public void reset(JumpPoint start) {
+        nodes = null;
+        target = NodeArena.NONE;
+        targetPoint = null;
+        if (start != null) {
+            x = start.x;
+            y = start.y;
+            targetPoint = start.mapNext;
+        }
+    }
+
+    /**
+     * @return true if the end of the path has not been reached.
+     */
+    public boolean hasNext() {
+        skipReached();
+        return target != NodeArena.NONE || targetPoint != null;
+    }
+
+    /**
+     * Take one step along the path. Must only be called if hasNext().
+     * @return direction of the step (0 = N, 1 = NE, ... 7 = NW).
+     */
+    public int next() {
+        skipReached();
+        int dx, dy;
+        if (targetPoint != null) {
+            dx = Integer.signum(targetPoint.x - x);
+            dy = Integer.signum(targetPoint.y - y);
+        } else {
+            dx = Integer.signum(nodes.x[target] - x);
+            dy = Integer.signum(nodes.y[target] - y);
+        }
+        x += dx;
+        y += dy;
+        return DIRECTIONS[(dy + 1) * 3 + dx + 1];
+    }
+
+    /**
+     * @return x-coordinate of the current square.
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * @return y-coordinate of the current square.
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * Move the target past jump points at the current square.
+     */
+    private void skipReached() {
+        if (targetPoint != null) {
+            while (targetPoint != null && targetPoint.x == x && targetPoint.y == y) {
+                targetPoint = targetPoint.mapNext;
+            }
+        } else {
+            while (target != NodeArena.NONE && nodes.x[target] == x && nodes.y[target] == y) {
+                target = nodes.mapNext[target];
+            }
+        }
+    }
+}
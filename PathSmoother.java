@@ -0,0 +1,235 @@
+package bytecodeNav;
+
+/**
+ * String pulling for finished paths. A path from a search has a node at every
+ * jump point, including the zig-zags of long diagonals; the smoother drops
+ * every node that can be skipped by walking straight from the node before it
+ * to the node after it, so units make fewer turns and follow fewer waypoints.
+ *
+ * A unit walks between two waypoints diagonally first, then straight, as
+ * Navigation.directionTo() and ScenarioRunner do. A skip is allowed if that
+ * walk is clear, which never makes a path longer. Each part of the walk is
+ * checked with one bit scan: the straight part along its row or column, and
+ * the diagonal part along a bit array of the map's diagonals. The diagonals
+ * are built on the first check, as one row per diagonal and one per
+ * anti-diagonal, and later brought up to date from the map's change log, or
+ * rebuilt when the log no longer holds every change. A MappedMap keeps its
+ * bits off the heap, so its diagonals are not built and the diagonal part is
+ * checked one square at a time instead.
+ *
+ * @author David
+ */
+public class PathSmoother {
+
+    final Map map;          // Map the paths were found on.
+    final BitScan rowScan;  // Bit scans over the map's rows (mapX).
+    final BitScan colScan;  // Bit scans over the map's columns (mapY).
+    final BitScan lineScan = new IntrinsicScan();   // Bit scans over the diagonals, of any length.
+    long[][] diagonals;     // Diagonal x - y + height - 1 of the map, from its top square.
+    long[][] antidiagonals; // Anti-diagonal x + y of the map, from its left square.
+    long mark;              // Map.changeMark() the diagonals are up to date with.
+
+    /**
+     * Constructor.
+     * @param m map the paths were found on.
+     */
+    public PathSmoother(Map m) {
+        this(m, new IntrinsicScan());
+    }
+
+    /**
+     * Constructor.
+     * @param m map the paths were found on.
+     * @param s bit scans to check walks with. Ignored for a MappedMap, which
+     * is always scanned in place.
+     */
+    public PathSmoother(Map m, BitScan s) {
+        map = m;
+        if (m instanceof MappedMap) {
+            rowScan = ((MappedMap) m).rowScan();
+            colScan = ((MappedMap) m).colScan();
+        } else {
+            rowScan = s;
+            colScan = s;
+        }
+    }
+
+    /**
+     * Smooth a complete path in place by relinking its nodes. Dropped nodes
+     * stay in the arena but are no longer linked to the path.
+     * @param nodes storage of the path; must not belong to a suspended search.
+     * @param start node at the start of the path.
+     * @return the node at the start of the path.
+     */
+    public int smooth(NodeArena nodes, int start) {
+        if (start == NodeArena.NONE) {
+            return start;
+        }
+        int anchor = start;             // Last node kept.
+        int skip = nodes.mapNext[start];// Node that may be dropped.
+        while (skip != NodeArena.NONE && nodes.mapNext[skip] != NodeArena.NONE) {
+            int after = nodes.mapNext[skip];
+            if (!walkable(nodes.x[anchor], nodes.y[anchor], nodes.x[after], nodes.y[after])) {
+                link(nodes, anchor, skip);
+                anchor = skip;
+            }
+            skip = after;
+        }
+        if (skip != NodeArena.NONE) {
+            link(nodes, anchor, skip);
+        }
+        return start;
+    }
+
+    /**
+     * Smooth a path of detached JumpPoints in place.
+     * @param start JumpPoint at the start of the path.
+     * @return the JumpPoint at the start of the path.
+     */
+    public JumpPoint smooth(JumpPoint start) {
+        if (start == null) {
+            return null;
+        }
+        JumpPoint anchor = start;
+        JumpPoint skip = start.mapNext;
+        while (skip != null && skip.mapNext != null) {
+            JumpPoint after = skip.mapNext;
+            if (!walkable(anchor.x, anchor.y, after.x, after.y)) {
+                anchor.mapNext = skip;
+                skip.mapLast = anchor;
+                anchor = skip;
+            }
+            skip = after;
+        }
+        if (skip != null) {
+            anchor.mapNext = skip;
+            skip.mapLast = anchor;
+        }
+        return start;
+    }
+
+    private static void link(NodeArena nodes, int from, int to) {
+        nodes.mapNext[from] = to;
+        nodes.mapLast[to] = from;
+    }
+
+    /**
+     * @return true if a unit walking from (ax,ay) to (bx,by), diagonally first
+     * and then straight, only steps on walkable squares.
+     */
+    public boolean walkable(int ax, int ay, int bx, int by) {
+        int sx = Integer.signum(bx - ax), sy = Integer.signum(by - ay);
+        int diagonal = Math.min(Math.abs(bx - ax), Math.abs(by - ay));
+        if (diagonal > 0 && map instanceof MappedMap) {
+            for (int i = 0; i < diagonal; i++) {
+                if (map.isBlocked(ax + sx * (i + 1), ay + sy * (i + 1))) {
+                    return false;
+                }
+            }
+        } else if (diagonal > 0) {
+            update();
+            int line = sx == sy ? ax - ay + map.height - 1 : ax + ay;
+            int p = ax - start(line);     // Position of (ax,ay) along the line.
+            long[][] lines = sx == sy ? diagonals : antidiagonals;
+            if (sx > 0 ? lineScan.distanceRight(p + 1, line, lines) < diagonal
+                    : lineScan.distanceLeft(p - 1, line, lines) < diagonal) {
+                return false;
+            }
+        }
+        ax += sx * diagonal;
+        ay += sy * diagonal;
+        if (ay == by && ax != bx) {     // Straight along a row.
+            return sx > 0 ? rowScan.distanceRight(ax + 1, ay, map.mapX) >= bx - ax
+                    : rowScan.distanceLeft(ax - 1, ay, map.mapX) >= ax - bx;
+        } else if (ax == bx && ay != by) {  // Straight along a column.
+            return sy > 0 ? colScan.distanceRight(ay + 1, ax, map.mapY) >= by - ay
+                    : colScan.distanceLeft(ay - 1, ax, map.mapY) >= ay - by;
+        }
+        return true;
+    }
+
+    /**
+     * @param line index of a diagonal or anti-diagonal.
+     * @return x of the first square of the line, the same for both.
+     */
+    int start(int line) {
+        return Math.max(0, line - (map.height - 1));
+    }
+
+    /**
+     * @param line index of a diagonal or anti-diagonal.
+     * @param down true for a diagonal, which runs down and to the right from
+     * its first square; false for an anti-diagonal, which runs up and to the
+     * right.
+     * @return number of squares on the line.
+     */
+    int length(int line, boolean down) {
+        int x = start(line);
+        int y = down ? x - line + map.height - 1 : line - x;
+        return Math.min(map.width - x, down ? map.height - y : y + 1);
+    }
+
+    /**
+     * Bring the diagonals up to date with the map.
+     */
+    void update() {
+        int[] changes = diagonals == null ? null : map.changesSince(mark);
+        mark = map.changeMark();
+        if (changes == null) {
+            build();
+            return;
+        }
+        for (int cell : changes) {
+            int x = cell % map.width, y = cell / map.width;
+            set(diagonals, x - y + map.height - 1, x, map.isBlocked(x, y));
+            set(antidiagonals, x + y, x, map.isBlocked(x, y));
+        }
+    }
+
+    /**
+     * Build the diagonals of the map, with the bits past the end of each line
+     * set so that scans stop at the edge of the map.
+     */
+    void build() {
+        int lines = map.width + map.height - 1;
+        diagonals = new long[lines][];
+        antidiagonals = new long[lines][];
+        for (int line = 0; line < lines; line++) {
+            diagonals[line] = pad(length(line, true));
+            antidiagonals[line] = pad(length(line, false));
+        }
+        for (int y = 0; y < map.height; y++) {
+            for (int x = 0; x < map.width; x++) {
+                if (map.isBlocked(x, y)) {
+                    set(diagonals, x - y + map.height - 1, x, true);
+                    set(antidiagonals, x + y, x, true);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return longs for a line of length squares, with the bits past its end
+     * set.
+     */
+    private static long[] pad(int length) {
+        long[] bits = new long[(length + 63) / 64];
+        if (length % 64 != 0) {
+            bits[bits.length - 1] = -1L >>> (length % 64);
+        }
+        return bits;
+    }
+
+    /**
+     * Set or clear the bit of square x on a line.
+     */
+    private void set(long[][] lines, int line, int x, boolean blocked) {
+        int p = x - start(line);
+        long bit = 1L << (63 - (p % 64));
+        if (blocked) {
+            lines[line][p / 64] |= bit;
+        } else {
+            lines[line][p / 64] &= ~bit;
+        }
+    }
+}
@@ -0,0 +1,467 @@
+package bytecodeNav;
+
+import java.util.Arrays;
+
+/**
+ * Incremental planner for a unit walking to one goal on a map that changes
+ * while it walks, after D* Lite (Koenig and Likhachev). The planner searches
+ * backward from the goal and keeps, between calls, the cost of the cheapest
+ * path to the goal from every square it has searched. When the unit asks for
+ * its path again, the planner reads the squares changed since its last plan
+ * from the map's change log and repairs only the costs those changes affect,
+ * so a replan after a few sensed obstacles costs a fraction of a new search.
+ *
+ * Moves and corner cutting follow the rest of the package, and moves are
+ * weighed by a CostModel, terrain included: a move costs the weight of the
+ * square it enters. The open list is a binary heap indexed by square, so keys
+ * of queued squares are changed in place. The planner starts over when the
+ * goal changes, or when the change log no longer covers its last plan.
+ *
+ * The costs of the squares are kept in 64x64 tiles that line up with the
+ * longs of the map's rows, and a tile is only made once a plan reaches it, so
+ * a planner costs memory for the squares it has searched, not for the whole
+ * map: 64 KiB per tile, where arrays over the map would cost 16 bytes per
+ * square, 1 GiB on an 8192x8192 map.
+ *
+ * Paths are nodes of a NodeArena, one node wherever the path turns, and are
+ * walked with a PathCursor like the paths of a SearchContext.
+ *
+ * @author David
+ */
+public class Replanner {
+
+    static final int INFINITE = Integer.MAX_VALUE;  // Cost of no path.
+    static final int SHIFT = 12;        // Squares of a tile are 1 << SHIFT apart.
+    static final int MASK = (1 << SHIFT) - 1;
+
+    final Map map;              // Map to plan on; read for changes, never modified.
+    final CostModel cost;       // Costs of moves.
+    final SearchBudget budget;  // Charged for every expansion and node; never stops a repair.
+    final NodeArena nodes;      // Nodes of the latest path.
+    final int width, height;    // Size of the map.
+    final int tilesX;           // Tiles in a row of the map.
+
+    // Entries of each square, in 64x64 tiles made when a plan first touches a
+    // square of the tile. A square is tile << SHIFT | (y % 64) << 6 | x % 64.
+    private final int[][] g;        // Cost to the goal of each square, if stamped with generation.
+    private final int[][] rhs;      // Cost to the goal through the best neighbor of each square.
+    private final int[][] position; // Index of each square in the heap, or -1.
+    private final int[][] stamp;    // Generation of the plan that last wrote each square.
+    private int generation;     // Stamp of the current plan.
+
+    // Open list: squares whose g and rhs differ, ordered by key.
+    private long[] keys = new long[64];     // (g-bound + estimate + offset) << 32 | g-bound
+    private int[] cells = new int[64];      // Each queued square.
+    private int size;                       // Number of queued squares.
+
+    private int goal = -1;      // Square of the goal, or -1 before the first plan.
+    private int start;          // Square of the start of the latest plan.
+    private int offset;         // Sum of the estimates between the starts of the plan.
+    private long mark;          // map.changeMark() when the map was last read.
+    private boolean reachedGoal;
+
+    /**
+     * Constructor for plans that minimize moves.
+     * @param m map to plan on.
+     * @param b budget of this planner. Must not be shared.
+     */
+    public Replanner(Map m, SearchBudget b) {
+        this(m, b, CostModel.CHEBYSHEV);
+    }
+
+    /**
+     * Constructor.
+     * @param m map to plan on.
+     * @param b budget of this planner. Must not be shared.
+     * @param c costs of moves.
+     */
+    public Replanner(Map m, SearchBudget b, CostModel c) {
+        map = m;
+        budget = b;
+        cost = c;
+        width = m.width;
+        height = m.height;
+        nodes = new NodeArena(64);
+        tilesX = (width + 63) / 64;
+        int tiles = tilesX * ((height + 63) / 64);
+        g = new int[tiles][];
+        rhs = new int[tiles][];
+        position = new int[tiles][];
+        stamp = new int[tiles][];
+    }
+
+    /**
+     * @return true if the latest plan found a path.
+     */
+    public boolean reachedGoal() {
+        return reachedGoal;
+    }
+
+    /**
+     * @return storage of the latest path.
+     */
+    public NodeArena getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Plan a path from (ax,ay) to (bx,by). With the goal of the previous plan,
+     * the previous plan is repaired for the squares changed since.
+     *
+     * @return the node at the start of the path, or NodeArena.NONE if there
+     * is no path.
+     */
+    public int getPath(int ax, int ay, int bx, int by) {
+        budget.begin();
+        nodes.clear();
+        reachedGoal = false;
+        int from = square(ax, ay);
+        int[] changes = square(bx, by) == goal ? map.changesSince(mark) : null;
+        if (changes == null) {
+            restart(from, square(bx, by));
+        } else {
+            offset += cost.estimate(ax - x(start), ay - y(start));
+            start = from;
+            for (int cell : changes) {
+                changed(cell);
+            }
+        }
+        mark = map.changeMark();
+        if (map.isBlocked(ax, ay) || map.isBlocked(bx, by)) {
+            return NodeArena.NONE;
+        }
+        plan();
+        if (rhs(start) == INFINITE) {
+            return NodeArena.NONE;
+        }
+        reachedGoal = true;
+        return retrace();
+    }
+
+    /**
+     * Forget every cost and queue the goal.
+     */
+    private void restart(int from, int to) {
+        if (++generation == 0) {    // Stamps wrapped around; clear them once.
+            for (int[] tile : stamp) {
+                if (tile != null) {
+                    Arrays.fill(tile, 0);
+                }
+            }
+            generation = 1;
+        }
+        size = 0;
+        offset = 0;
+        start = from;
+        goal = to;
+        touch(goal);
+        rhs[goal >>> SHIFT][goal & MASK] = 0;
+        update(goal);
+    }
+
+    /**
+     * Recompute the costs through a changed square and its neighbors, whose
+     * moves into the square changed with it.
+     * @param cell y * width + x of the square.
+     */
+    private void changed(int cell) {
+        int x = cell % width, y = cell / width;
+        for (int dir = -1; dir < 8; dir++) {
+            int nx = dir < 0 ? x : x + JumpTable.DX[dir];
+            int ny = dir < 0 ? y : y + JumpTable.DY[dir];
+            if (nx >= 0 && ny >= 0 && nx < width && ny < height && square(nx, ny) != goal) {
+                int n = square(nx, ny);
+                touch(n);
+                rhs[n >>> SHIFT][n & MASK] = lookahead(n);
+                update(n);
+            }
+        }
+    }
+
+    /**
+     * Expand queued squares until the cost of the start is known: its rhs is
+     * the cost of its cheapest path, and the g of every square on the path is
+     * final.
+     */
+    private void plan() {
+        while (size > 0 && (keys[0] < key(start) || rhs(start) > g(start))) {
+            int u = cells[0];
+            long old = keys[0];
+            long key = key(u);
+            budget.expanded();
+            if (old < key) {    // The key was computed from an earlier start.
+                keys[0] = key;
+                down(0);
+            } else if (g(u) > rhs(u)) {     // Cheaper than before: pass it on.
+                int best = rhs(u);
+                g[u >>> SHIFT][u & MASK] = best;
+                remove(u);
+                for (int dir = 0; dir < 8; dir++) {
+                    int p = neighbor(u, (dir + 4) & 7);    // Moves to u in dir.
+                    if (p >= 0 && p != goal && !map.isBlocked(x(p), y(p))) {
+                        int through = add(move(u, dir), best);
+                        touch(p);
+                        if (through < rhs(p)) {
+                            rhs[p >>> SHIFT][p & MASK] = through;
+                            update(p);
+                        }
+                    }
+                }
+            } else {            // Dearer than before: recompute what went through it.
+                int before = g(u);
+                g[u >>> SHIFT][u & MASK] = INFINITE;
+                if (u != goal) {
+                    rhs[u >>> SHIFT][u & MASK] = lookahead(u);
+                }
+                update(u);
+                for (int dir = 0; dir < 8; dir++) {
+                    int p = neighbor(u, (dir + 4) & 7);    // Moves to u in dir.
+                    if (p >= 0 && p != goal && rhs(p) != INFINITE && rhs(p) == add(move(u, dir), before)) {
+                        rhs[p >>> SHIFT][p & MASK] = lookahead(p);
+                        update(p);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Walk the cheapest neighbors from the start to the goal, keeping the
+     * direction while it is as cheap, and record a node at every turn.
+     * @return the node at the start of the path.
+     */
+    private int retrace() {
+        int first = nodes.add(x(start), y(start), NodeArena.NONE, 0, 0);
+        budget.allocated();
+        int last = first, at = start, dir = 0, dist = 0;
+        for (int steps = 0; at != goal; steps++) {
+            int best = INFINITE, bestDir = -1, bestCell = -1;
+            for (int i = 0; i < 8; i++) {
+                int d = (dir + i) & 7;
+                int n = neighbor(at, d);
+                int c = n >= 0 ? add(move(n, d), g(n)) : INFINITE;
+                if (c < best) {
+                    best = c;
+                    bestDir = d;
+                    bestCell = n;
+                }
+            }
+            if (bestDir < 0 || steps == width * height) {
+                reachedGoal = false;
+                return NodeArena.NONE;
+            }
+            if (bestDir != dir && at != start) {
+                last = link(last, at, dir, dist);
+            }
+            dist += move(bestCell, bestDir);
+            dir = bestDir;
+            at = bestCell;
+        }
+        link(last, goal, dir, dist);
+        return first;
+    }
+
+    /**
+     * Add a node to the path after another.
+     * @return the new node.
+     */
+    private int link(int last, int cell, int dir, int dist) {
+        int n = nodes.add(x(cell), y(cell), last, dir, dist);
+        nodes.mapNext[last] = n;
+        budget.allocated();
+        return n;
+    }
+
+    /**
+     * @return cost to the goal through the best neighbor of a square.
+     */
+    private int lookahead(int u) {
+        if (map.isBlocked(x(u), y(u))) {
+            return INFINITE;
+        }
+        int best = INFINITE;
+        for (int dir = 0; dir < 8; dir++) {
+            int n = neighbor(u, dir);
+            if (n >= 0) {
+                best = Math.min(best, add(move(n, dir), g(n)));
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the square next to u in the direction, or -1 if it is off the
+     * map.
+     */
+    private int neighbor(int u, int dir) {
+        int x = x(u) + JumpTable.DX[dir], y = y(u) + JumpTable.DY[dir];
+        return x >= 0 && y >= 0 && x < width && y < height ? square(x, y) : -1;
+    }
+
+    /**
+     * @return the square at map coords (x,y).
+     */
+    private int square(int x, int y) {
+        return ((y >> 6) * tilesX + (x >> 6)) << SHIFT | (y & 63) << 6 | (x & 63);
+    }
+
+    private int x(int u) {
+        return (u >>> SHIFT) % tilesX << 6 | (u & 63);
+    }
+
+    private int y(int u) {
+        return (u >>> SHIFT) / tilesX << 6 | (u >>> 6 & 63);
+    }
+
+    /**
+     * @return cost of a move in the direction into square n, or INFINITE if
+     * n is not walkable.
+     */
+    private int move(int n, int dir) {
+        int x = x(n), y = y(n);
+        if (map.isBlocked(x, y)) {
+            return INFINITE;
+        }
+        int step = cost.step(dir);
+        return cost.terrain ? step * cost.weight(map.terrain(x, y)) : step;
+    }
+
+    private static int add(int a, int b) {
+        return a == INFINITE || b == INFINITE ? INFINITE : a + b;
+    }
+
+    private int g(int u) {
+        int[] tile = stamp[u >>> SHIFT];
+        return tile != null && tile[u & MASK] == generation ? g[u >>> SHIFT][u & MASK] : INFINITE;
+    }
+
+    private int rhs(int u) {
+        int[] tile = stamp[u >>> SHIFT];
+        return tile != null && tile[u & MASK] == generation ? rhs[u >>> SHIFT][u & MASK] : INFINITE;
+    }
+
+    /**
+     * Start a square's entries afresh if the current plan has not written
+     * them, making its tile if no plan has touched the tile yet.
+     */
+    private void touch(int u) {
+        int t = u >>> SHIFT;
+        if (stamp[t] == null) {
+            g[t] = new int[1 << SHIFT];
+            rhs[t] = new int[1 << SHIFT];
+            position[t] = new int[1 << SHIFT];
+            stamp[t] = new int[1 << SHIFT];
+        }
+        int i = u & MASK;
+        if (stamp[t][i] != generation) {
+            stamp[t][i] = generation;
+            g[t][i] = INFINITE;
+            rhs[t][i] = INFINITE;
+            position[t][i] = -1;
+        }
+    }
+
+    /**
+     * @return key of a touched square: the lowest cost of a path from the
+     * start through it, then its lowest cost to the goal.
+     */
+    private long key(int u) {
+        int low = Math.min(g(u), rhs(u));
+        if (low == INFINITE) {
+            return Long.MAX_VALUE;
+        }
+        int estimate = cost.estimate(x(u) - x(start), y(u) - y(start));
+        return (long) (low + estimate + offset) << 32 | low;
+    }
+
+    /**
+     * Queue a touched square if its g and rhs differ, and unqueue it if not.
+     */
+    private void update(int u) {
+        if (g[u >>> SHIFT][u & MASK] == rhs[u >>> SHIFT][u & MASK]) {
+            remove(u);
+        } else if (position[u >>> SHIFT][u & MASK] < 0) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                cells = Arrays.copyOf(cells, size * 2);
+            }
+            keys[size] = key(u);
+            cells[size] = u;
+            position[u >>> SHIFT][u & MASK] = size;
+            up(size++);
+        } else {
+            int i = position[u >>> SHIFT][u & MASK];
+            long old = keys[i];
+            keys[i] = key(u);
+            if (keys[i] < old) {
+                up(i);
+            } else {
+                down(i);
+            }
+        }
+    }
+
+    /**
+     * Unqueue a touched square, if it is queued.
+     */
+    private void remove(int u) {
+        int i = position[u >>> SHIFT][u & MASK];
+        if (i < 0) {
+            return;
+        }
+        position[u >>> SHIFT][u & MASK] = -1;
+        if (i == --size) {
+            return;
+        }
+        keys[i] = keys[size];
+        cells[i] = cells[size];
+        place(cells[i], i);
+        if (i > 0 && keys[i] < keys[(i - 1) / 2]) {
+            up(i);
+        } else {
+            down(i);
+        }
+    }
+
+    /**
+     * Record the index of a queued square in the heap.
+     */
+    private void place(int u, int i) {
+        position[u >>> SHIFT][u & MASK] = i;
+    }
+
+    private void up(int i) {
+        long key = keys[i];
+        int cell = cells[i];
+        while (i > 0 && key < keys[(i - 1) / 2]) {
+            int parent = (i - 1) / 2;
+            keys[i] = keys[parent];
+            cells[i] = cells[parent];
+            place(cells[i], i);
+            i = parent;
+        }
+        keys[i] = key;
+        cells[i] = cell;
+        place(cell, i);
+    }
+
+    private void down(int i) {
+        long key = keys[i];
+        int cell = cells[i];
+        for (int child = 2 * i + 1; child < size; child = 2 * i + 1) {
+            if (child + 1 < size && keys[child + 1] < keys[child]) {
+                child++;
+            }
+            if (keys[child] >= key) {
+                break;
+            }
+            keys[i] = keys[child];
+            cells[i] = cells[child];
+            place(cells[i], i);
+            i = child;
+        }
+        keys[i] = key;
+        cells[i] = cell;
+        place(cell, i);
+    }
+}
@@ -0,0 +1,367 @@
+package bytecodeNav;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Headless benchmark: solves every query of a Moving AI scenario with the jump
+ * point search and reports throughput, expansions, latency and path quality.
+ *
+ * Usage: ScenarioRunner file.map file.scen [navtools|intrinsic|table|bounded|bidirectional|batch|replan|cluster] [smooth] [stats] [octile]
+ *
+ * A map that does not end in .map is opened as a MappedMap. The navtools mode
+ * scans with NavTools, which only works on 256x256 maps: a .map of 254x254,
+ * framed by MovingAi; other maps are refused. The table mode
+ * builds a JumpTable first and searches with JPS+; the bounded mode also
+ * builds GoalBounds, which takes a while on large maps, and the bidirectional
+ * mode searches from both ends. The batch mode solves the whole scenario at
+ * once with a BatchSolver over a JumpTable, on every core. The replan mode
+ * plans each query with a Replanner, walks a third of the path, blocks squares
+ * of the path further on and plans again, and compares the cost of the first
+ * plan with the cost of the repair; it needs a .map. The cluster mode plans
+ * on a ClusterGraph and refines every stretch of the path with JPS+, and
+ * reports the time of the abstract plans apart from the whole. With smooth, paths
+ * are shortened by a PathSmoother before they are measured. With stats, the
+ * searches are counted in SearchStats and the counts per query are printed.
+ * With octile, the JPS+ modes weigh diagonal moves 99/70 of straight ones
+ * (CostModel.OCTILE_FINE), which finds the shortest octile paths the engine
+ * can walk.
+ *
+ * Paths are measured in octile length (diagonals cost sqrt(2)) like the
+ * scenario's optimal lengths, walking diagonally first between jump points.
+ * Unless octile is given, the search minimizes moves (diagonals cost 1), so
+ * suboptimality is expected on maps with long diagonals. The engine cuts
+ * corners and the scenario's optimal lengths do not, so a path may be shorter
+ * than the scenario's optimum; such paths are counted as short and left out
+ * of the suboptimality, which is only measured on the other paths.
+ *
+ * @author David
+ */
+public class ScenarioRunner {
+
+    static final double SQRT2 = Math.sqrt(2);
+
+    /** Slack for the rounding of the optimal lengths in a .scen file. */
+    static final double EPSILON = 1e-6;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: ScenarioRunner file.map file.scen [navtools|intrinsic|table|bounded|bidirectional|batch|replan|cluster] [smooth] [stats] [octile]");
+            return;
+        }
+        Map map = args[0].endsWith(".map") ? MovingAi.loadMap(args[0]) : MappedMap.open(args[0]);
+        Scenarios scen = MovingAi.loadScenarios(args[1]);
+        String mode = args.length > 2 ? args[2] : "";
+        List<String> options = Arrays.asList(args).subList(Math.min(args.length, 3), args.length);
+        ExpansionBudget budget = new ExpansionBudget(Integer.MAX_VALUE, 0);
+        SearchStats stats = options.contains("stats") ? new SearchStats() : null;
+        SearchBudget charged = stats != null ? new CountingBudget(budget, stats) : budget;
+        SearchContext context;
+        if (mode.equals("batch")) {
+            BatchSolver solver = new BatchSolver(JumpTable.build(map), null);
+            runBatch(map, scen, solver, false);     // Warm up the JIT and the workers.
+            runBatch(map, scen, solver, true);
+            return;
+        }
+        if (mode.equals("cluster")) {
+            long begin = System.nanoTime();
+            ClusterGraph graph = ClusterGraph.build(map);
+            System.out.printf("clusters:    %.1f ms, %d nodes%n", (System.nanoTime() - begin) / 1e6, graph.size());
+            ClusterPlanner planner = new ClusterPlanner(graph, new SearchContext(JumpTable.build(map), budget));
+            runClusters(map, scen, planner, false);     // Warm up the JIT.
+            runClusters(map, scen, planner, true);
+            return;
+        }
+        if (mode.equals("replan")) {
+            Replanner planner = new Replanner(map, budget);
+            runReplan(map, scen, planner, budget, false);   // Warm up the JIT.
+            runReplan(map, scen, planner, budget, true);
+            return;
+        }
+        if (mode.equals("table") || mode.equals("bounded") || mode.equals("bidirectional")) {
+            long begin = System.nanoTime();
+            JumpTable table = JumpTable.build(map);
+            System.out.printf("jump table:  %.1f ms%n", (System.nanoTime() - begin) / 1e6);
+            GoalBounds bounds = null;
+            if (mode.equals("bounded")) {
+                begin = System.nanoTime();
+                bounds = GoalBounds.build(map);
+                System.out.printf("goal bounds: %.1f ms%n", (System.nanoTime() - begin) / 1e6);
+            }
+            CostModel cost = options.contains("octile") ? CostModel.OCTILE_FINE : CostModel.CHEBYSHEV;
+            context = new SearchContext(table, bounds, charged, mode.equals("bidirectional"), cost);
+        } else {
+            BitScan scan;
+            if (mode.equals("intrinsic")) {
+                scan = new IntrinsicScan();
+            } else if (mode.equals("navtools")) {
+                if (map.width != 256 || map.height != 256 || map instanceof MappedMap) {
+                    System.out.println("navtools needs a 256x256 map (a 254x254 .map), not "
+                            + map.width + "x" + map.height);
+                    return;
+                }
+                scan = new NavToolsScan();
+            } else {    // As SearchContext(Map, SearchBudget) picks.
+                scan = map.width == 256 && map.height == 256 ? new NavToolsScan() : new IntrinsicScan();
+            }
+            context = new SearchContext(map, charged, stats != null ? new CountingScan(scan, stats) : scan);
+        }
+        context.setStats(stats);
+
+        PathSmoother smoother = options.contains("smooth") ? new PathSmoother(map) : null;
+        run(map, scen, context, budget, smoother, stats, false);   // Warm up the JIT.
+        run(map, scen, context, budget, smoother, stats, true);
+    }
+
+    /**
+     * Solve every query of the scenario once.
+     * @param smoother smooths every path, or null.
+     * @param stats counters of the context's searches, or null.
+     * @param report true to print the results.
+     */
+    static void run(Map map, Scenarios scen, SearchContext context, ExpansionBudget budget,
+            PathSmoother smoother, SearchStats stats, boolean report) {
+        SearchStats.Aggregate total = new SearchStats.Aggregate();
+        long[] latency = new long[scen.size];
+        long expansions = 0, waypoints = 0;
+        PathCursor cursor = new PathCursor();
+        int solved = 0, failed = 0, invalid = 0, shorter = 0;
+        double ratio = 0, worst = 0;
+
+        long begin = System.nanoTime();
+        for (int i = 0; i < scen.size; i++) {
+            int[] a = map.mapToArray(scen.startX[i], scen.startY[i]);
+            int[] b = map.mapToArray(scen.goalX[i], scen.goalY[i]);
+            if (stats != null) {
+                stats.clear();
+            }
+            long t = System.nanoTime();
+            int path = context.getPath(a[0], a[1], b[0], b[1]);
+            if (smoother != null && context.reachedGoal()) {
+                path = smoother.smooth(context.getNodes(), path);
+            }
+            latency[i] = System.nanoTime() - t;
+            expansions += budget.used();
+            if (stats != null) {
+                total.add(stats, 1);
+            }
+
+            if (!context.reachedGoal()) {
+                failed++;
+                continue;
+            }
+            for (int n = path; n != NodeArena.NONE; n = context.getNodes().next(n)) {
+                waypoints++;
+            }
+            double length = length(map, cursor, context.getNodes(), path);
+            if (length < 0) {
+                invalid++;
+                continue;
+            }
+            if (length < scen.optimal[i] - EPSILON) {
+                shorter++;
+                continue;
+            }
+            solved++;
+            double r = scen.optimal[i] > 0 ? length / scen.optimal[i] : 1;
+            ratio += r;
+            worst = Math.max(worst, r);
+        }
+        long elapsed = System.nanoTime() - begin;
+        if (!report) {
+            return;
+        }
+
+        Arrays.sort(latency);
+        int n = Math.max(scen.size, 1);
+        System.out.printf("queries:     %d (%d solved, %d failed, %d invalid, %d short)%n",
+                scen.size, solved + shorter, failed, invalid, shorter);
+        System.out.printf("throughput:  %.1f queries/s%n", scen.size / (elapsed / 1e9));
+        System.out.printf("expansions:  %.1f per query%n", expansions / (double) n);
+        System.out.printf("waypoints:   %.1f per path%n", waypoints / (double) Math.max(solved + shorter + invalid, 1));
+        System.out.printf("latency:     p50 %.1f us, p99 %.1f us%n",
+                latency[(n - 1) / 2] / 1e3, latency[(int) ((n - 1) * 0.99)] / 1e3);
+        System.out.printf("suboptimal:  mean %.4f, max %.4f over %d paths%n", solved > 0 ? ratio / solved : 1, worst, solved);
+        if (stats != null) {
+            SearchStats sum = total.sum();
+            double q = Math.max(total.queries(), 1);
+            System.out.printf("per query:   %.1f allocations, %.1f inserts, %.1f rejected, %.1f bucket reads%n",
+                    sum.getAllocations() / q, sum.getInserts() / q, sum.getRejected() / q, sum.getBucketScans() / q);
+            System.out.printf("bit scans:   %.1f left, %.1f right, %.1f void left, %.1f void right%n",
+                    sum.getScans(SearchStats.LEFT) / q, sum.getScans(SearchStats.RIGHT) / q,
+                    sum.getScans(SearchStats.VOID_LEFT) / q, sum.getScans(SearchStats.VOID_RIGHT) / q);
+        }
+    }
+
+    /**
+     * Solve every query of the scenario as one batch.
+     * @param report true to print the results.
+     */
+    static void runBatch(Map map, Scenarios scen, BatchSolver solver, boolean report) {
+        int[] starts = new int[scen.size * 2];
+        int[] goals = new int[scen.size * 2];
+        for (int i = 0; i < scen.size; i++) {
+            int[] a = map.mapToArray(scen.startX[i], scen.startY[i]);
+            int[] b = map.mapToArray(scen.goalX[i], scen.goalY[i]);
+            starts[i * 2] = a[0];
+            starts[i * 2 + 1] = a[1];
+            goals[i * 2] = b[0];
+            goals[i * 2 + 1] = b[1];
+        }
+        long begin = System.nanoTime();
+        PathBatch paths = solver.solve(starts, goals);
+        long elapsed = System.nanoTime() - begin;
+        if (!report) {
+            return;
+        }
+
+        int solved = 0;
+        for (int i = 0; i < paths.size(); i++) {
+            if (paths.length(i) > 0) {
+                solved++;
+            }
+        }
+        System.out.printf("queries:     %d (%d solved, %d failed) on %d threads%n",
+                scen.size, solved, scen.size - solved, solver.pool.getParallelism());
+        System.out.printf("throughput:  %.1f queries/s%n", scen.size / (elapsed / 1e9));
+    }
+
+    /**
+     * Solve every query on a ClusterGraph, then refine every stretch of the
+     * path.
+     * @param report true to print the results.
+     */
+    static void runClusters(Map map, Scenarios scen, ClusterPlanner planner, boolean report) {
+        PathCursor cursor = new PathCursor();
+        long planTime = 0, waypoints = 0;
+        int solved = 0, failed = 0, invalid = 0, shorter = 0;
+        double ratio = 0, worst = 0;
+        long begin = System.nanoTime();
+        for (int i = 0; i < scen.size; i++) {
+            int[] a = map.mapToArray(scen.startX[i], scen.startY[i]);
+            int[] b = map.mapToArray(scen.goalX[i], scen.goalY[i]);
+            long t = System.nanoTime();
+            boolean found = planner.plan(a[0], a[1], b[0], b[1]);
+            planTime += System.nanoTime() - t;
+            if (!found) {
+                failed++;
+                continue;
+            }
+            waypoints += planner.waypoints();
+            double length = 0;
+            for (int k = 0; k + 1 < planner.waypoints() && length >= 0; k++) {
+                int path = planner.refine(k);
+                double stretch = planner.context.reachedGoal()
+                        ? length(map, cursor, planner.context.getNodes(), path) : -1;
+                length = stretch < 0 ? -1 : length + stretch;
+            }
+            if (length < 0) {
+                invalid++;
+                continue;
+            }
+            if (length < scen.optimal[i] - EPSILON) {
+                shorter++;
+                continue;
+            }
+            solved++;
+            double r = scen.optimal[i] > 0 ? length / scen.optimal[i] : 1;
+            ratio += r;
+            worst = Math.max(worst, r);
+        }
+        long elapsed = System.nanoTime() - begin;
+        if (!report) {
+            return;
+        }
+
+        int n = Math.max(scen.size, 1);
+        System.out.printf("queries:     %d (%d solved, %d failed, %d invalid, %d short)%n",
+                scen.size, solved + shorter, failed, invalid, shorter);
+        System.out.printf("throughput:  %.1f queries/s, %.1f abstract plans/s%n",
+                scen.size / (elapsed / 1e9), scen.size / (planTime / 1e9));
+        System.out.printf("waypoints:   %.1f per path%n", waypoints / (double) Math.max(solved + shorter + invalid, 1));
+        System.out.printf("suboptimal:  mean %.4f, max %.4f over %d paths%n", solved > 0 ? ratio / solved : 1, worst, solved);
+    }
+
+    /**
+     * Solve every query with a Replanner, then walk a third of the path, block
+     * three squares two thirds along it, and plan again from there. The squares
+     * are cleared again afterwards.
+     * @param report true to print the results.
+     */
+    static void runReplan(Map map, Scenarios scen, Replanner planner, ExpansionBudget budget, boolean report) {
+        PathCursor cursor = new PathCursor();
+        int[] blocked = new int[3];
+        long planned = 0, repaired = 0, planTime = 0, repairTime = 0;
+        int replans = 0, failed = 0;
+        for (int i = 0; i < scen.size; i++) {
+            int[] a = map.mapToArray(scen.startX[i], scen.startY[i]);
+            int[] b = map.mapToArray(scen.goalX[i], scen.goalY[i]);
+            long t = System.nanoTime();
+            int path = planner.getPath(a[0], a[1], b[0], b[1]);
+            planTime += System.nanoTime() - t;
+            planned += budget.used();
+            int steps = 0;
+            cursor.reset(planner.getNodes(), path);
+            while (cursor.hasNext()) {
+                cursor.next();
+                steps++;
+            }
+            if (steps < 10) {   // Too short to leave the goal unblocked.
+                continue;
+            }
+
+            // Walk a third of the path, then block squares further on.
+            int x = a[0], y = a[1], count = 0;
+            cursor.reset(planner.getNodes(), path);
+            for (int k = 1; k <= steps * 2 / 3 + blocked.length; k++) {
+                cursor.next();
+                if (k == steps / 3) {
+                    x = cursor.getX();
+                    y = cursor.getY();
+                } else if (k > steps * 2 / 3) {
+                    blocked[count++] = cursor.getY() * map.width + cursor.getX();
+                }
+            }
+            map.applyUpdates(blocked);
+            t = System.nanoTime();
+            planner.getPath(x, y, b[0], b[1]);
+            repairTime += System.nanoTime() - t;
+            repaired += budget.used();
+            replans++;
+            if (!planner.reachedGoal()) {
+                failed++;
+            }
+            for (int k = 0; k < blocked.length; k++) {
+                blocked[k] = ~blocked[k];
+            }
+            map.applyUpdates(blocked);
+        }
+        if (!report) {
+            return;
+        }
+
+        int n = Math.max(scen.size, 1), r = Math.max(replans, 1);
+        System.out.printf("replans:     %d of %d queries (%d without a path)%n", replans, scen.size, failed);
+        System.out.printf("first plan:  %.1f expansions, %.1f us per query%n", planned / (double) n, planTime / 1e3 / n);
+        System.out.printf("repair:      %.1f expansions, %.1f us per replan%n", repaired / (double) r, repairTime / 1e3 / r);
+    }
+
+    /**
+     * Octile length of a path, walking diagonally first between jump points.
+     * @param cursor cursor to walk the path with.
+     * @param start first node of the path.
+     * @return length of the path, or -1 if it crosses a non-walkable square.
+     */
+    static double length(Map map, PathCursor cursor, NodeArena nodes, int start) {
+        double length = 0;
+        cursor.reset(nodes, start);
+        while (cursor.hasNext()) {
+            length += (cursor.next() & 1) == 1 ? SQRT2 : 1;
+            if (map.isBlocked(cursor.getX(), cursor.getY())) {
+                return -1;
+            }
+        }
+        return length;
+    }
+}
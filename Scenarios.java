@@ -0,0 +1,51 @@
+package bytecodeNav;
+
+import java.util.Arrays;
+
+/**
+ * Path queries with known optimal lengths, stored in parallel arrays.
+ *
+ * @author David
+ */
+public class Scenarios {
+
+    int[] startX, startY, goalX, goalY;   // Real coords of each query.
+    double[] optimal;   // Optimal octile length of each query, diagonals cost sqrt(2).
+    int size;           // Number of queries.
+
+    public Scenarios() {
+        startX = new int[64];
+        startY = new int[64];
+        goalX = new int[64];
+        goalY = new int[64];
+        optimal = new double[64];
+    }
+
+    /**
+     * Add a query.
+     * @param sx x-coordinate of the start.
+     * @param sy y-coordinate of the start.
+     * @param gx x-coordinate of the goal.
+     * @param gy y-coordinate of the goal.
+     * @param length optimal length of a path from start to goal.
+     */
+    public void add(int sx, int sy, int gx, int gy, double length) {
+        if (size == startX.length) {
+            int capacity = size * 2;
+            startX = Arrays.copyOf(startX, capacity);
+            startY = Arrays.copyOf(startY, capacity);
+            goalX = Arrays.copyOf(goalX, capacity);
+            goalY = Arrays.copyOf(goalY, capacity);
+            optimal = Arrays.copyOf(optimal, capacity);
+        }
+        startX[size] = sx;
+        startY[size] = sy;
+        goalX[size] = gx;
+        goalY[size] = gy;
+        optimal[size++] = length;
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,38 @@
+package bytecodeNav;
+
+/**
+ * Resource budget of a search. A SearchContext spends its budget one slice at
+ * a time: begin() is called whenever a search is started or resumed, nodes are
+ * expanded while hasRemaining() is true, and the search returns its partial
+ * path as soon as isLow() is true. A budget is stateful, so every
+ * SearchContext needs its own instance.
+ *
+ * @author David
+ */
+public interface SearchBudget {
+
+    /**
+     * Start spending a new slice of this budget.
+     */
+    void begin();
+
+    /**
+     * @return true if another node may be expanded in this slice.
+     */
+    boolean hasRemaining();
+
+    /**
+     * @return true if the search should stop and return its partial path.
+     */
+    boolean isLow();
+
+    /**
+     * Charge one node expansion against this budget.
+     */
+    void expanded();
+
+    /**
+     * Charge one JumpPoint allocation against this budget.
+     */
+    void allocated();
+}
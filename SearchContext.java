@@ -0,0 +1,847 @@
+package bytecodeNav;
+
+import java.util.Arrays;
+
+/**
+ * State of a single jump point search. Every SearchContext owns its open list,
+ * goal and result, and only reads from its Map, so any number of contexts may
+ * search the same Map at once (e.g. one per robot, or one per worker thread).
+ *
+ * A SearchContext runs one search at a time. A search that runs out of its
+ * SearchBudget returns a partial path and may be continued with resume().
+ *
+ * A SearchContext made with a JumpTable searches with JPS+: jump points are
+ * looked up in the table instead of scanned for, and every location keeps its
+ * best distance so paths are optimal in moves. With GoalBounds as well, it
+ * does not search in directions that cannot start an optimal path to the goal.
+ * A bidirectional JPS+ search also searches from the goal back to the start,
+ * and joins the two halves where they cross. JPS+ searches may weigh moves by
+ * a CostModel, e.g. octile costs; the jump table is the same for any costs.
+ * A CostModel may also weigh the terrain classes of the map, for one-way JPS+
+ * searches; scan searches ignore terrain.
+ *
+ * A scan search puts off the nodes that turn off a row whose run up to them
+ * has been visited all along (see HashQueue.anyUnvisited()), since other
+ * nodes have searched there. If the queue runs dry before the goal is
+ * reached, the nodes put off are searched after all, and the search stops
+ * putting nodes off, so it still finds a path wherever it did before.
+ *
+ * @author David
+ */
+public class SearchContext {
+
+    final Map map;          // Map to search; never modified by the search.
+    final NodeArena nodes;  // Nodes of the current search.
+    HashQueue heap;         // Priority queue for the current search.
+    int pathStart;          // First node of the last complete path, or NONE.
+    int goalX, goalY;       // Coordinates of the goal of the current search.
+    boolean searching, reachedGoal;
+    final SearchBudget budget;  // Decides when a search has to be suspended.
+    final BitScan rowScan;      // Bit scans over the map's rows (mapX).
+    final BitScan colScan;      // Bit scans over the map's columns (mapY).
+    final JumpTable table;      // Jump distances for JPS+, or null to scan.
+    final GoalBounds bounds;    // Goal bounding boxes for JPS+, or null.
+    TableFrontier forward;      // Open list of a JPS+ search.
+    TableFrontier backward;     // Open list from the goal of a bidirectional JPS+ search, or null.
+    SearchStats stats;          // Counters of the open lists' work, or null.
+    int[] deferred = new int[64];   // Nodes a scan search has put off.
+    int deferredCount;
+    boolean pruning;            // True while a scan search puts nodes off.
+
+    /**
+     * Constructor for searches that scan the map with NavTools, or with
+     * IntrinsicScan if the map is not 256x256.
+     *
+     * @param m map to search. May be shared with other SearchContexts.
+     * @param b budget of this context's searches. Must not be shared.
+     */
+    public SearchContext(Map m, SearchBudget b) {
+        this(m, b, m.width == 256 && m.height == 256 ? new NavToolsScan() : new IntrinsicScan());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param m map to search. May be shared with other SearchContexts.
+     * @param b budget of this context's searches. Must not be shared.
+     * @param s bit scans to search with, e.g. IntrinsicScan outside of
+     * Battlecode. Ignored for a MappedMap, which is always scanned in place.
+     * @throws IllegalArgumentException if s is a NavToolsScan, or counts one,
+     * and the map is not 256x256.
+     */
+    public SearchContext(Map m, SearchBudget b, BitScan s) {
+        BitScan scan = s instanceof CountingScan ? ((CountingScan) s).scan : s;
+        if (scan instanceof NavToolsScan && !(m instanceof MappedMap) && (m.width != 256 || m.height != 256)) {
+            throw new IllegalArgumentException("NavTools only scans 256x256 maps, not " + m.width + "x" + m.height);
+        }
+        map = m;
+        budget = b;
+        if (m instanceof MappedMap) {
+            rowScan = ((MappedMap) m).rowScan();
+            colScan = ((MappedMap) m).colScan();
+        } else {
+            rowScan = s;
+            colScan = s;
+        }
+        table = null;
+        bounds = null;
+        nodes = new NodeArena(256);
+        reachedGoal = false;
+        searching = false;
+        pathStart = NodeArena.NONE;
+        heap = null;
+    }
+
+    /**
+     * Constructor for JPS+ searches.
+     *
+     * @param t jump table of the map to search. May be shared with other
+     * SearchContexts.
+     * @param b budget of this context's searches. Must not be shared.
+     */
+    public SearchContext(JumpTable t, SearchBudget b) {
+        this(t, null, b);
+    }
+
+    /**
+     * Constructor for JPS+ searches pruned by goal bounding boxes.
+     *
+     * @param t jump table of the map to search. May be shared with other
+     * SearchContexts.
+     * @param g goal bounding boxes of the same map, or null. May be shared.
+     * @param b budget of this context's searches. Must not be shared.
+     */
+    public SearchContext(JumpTable t, GoalBounds g, SearchBudget b) {
+        this(t, g, b, false);
+    }
+
+    /**
+     * Constructor for JPS+ searches that may search from both ends. A
+     * bidirectional search expands whichever of its open lists is smaller,
+     * and ends when no path through either open list could be shorter than
+     * the shortest path through both.
+     *
+     * @param t jump table of the map to search. May be shared with other
+     * SearchContexts.
+     * @param g goal bounding boxes of the same map, or null. May be shared.
+     * @param b budget of this context's searches. Must not be shared.
+     * @param bidirectional true to search from both the start and the goal.
+     */
+    public SearchContext(JumpTable t, GoalBounds g, SearchBudget b, boolean bidirectional) {
+        this(t, g, b, bidirectional, CostModel.CHEBYSHEV);
+    }
+
+    /**
+     * Constructor for JPS+ searches that find the cheapest path under a
+     * CostModel. Distances of nodes are in the model's units.
+     *
+     * @param t jump table of the map to search. May be shared with other
+     * SearchContexts.
+     * @param g goal bounding boxes of the same map, or null. GoalBounds hold
+     * shortest paths in moves, so they need CostModel.CHEBYSHEV.
+     * @param b budget of this context's searches. Must not be shared.
+     * @param bidirectional true to search from both the start and the goal.
+     * Not with terrain weights, since a move costs the weight of the square it
+     * enters and the backward search would charge the square it leaves.
+     * @param c costs of moves.
+     */
+    public SearchContext(JumpTable t, GoalBounds g, SearchBudget b, boolean bidirectional, CostModel c) {
+        if (g != null && g.map != t.map) {
+            throw new IllegalArgumentException("GoalBounds of another map");
+        }
+        if (g != null && !c.isChebyshev()) {
+            throw new IllegalArgumentException("GoalBounds need Chebyshev costs");
+        }
+        if (bidirectional && c.terrain) {
+            throw new IllegalArgumentException("Terrain weights need a one-way search");
+        }
+        map = t.map;
+        budget = b;
+        rowScan = null;
+        colScan = null;
+        table = t;
+        bounds = g;
+        nodes = new NodeArena(256);
+        forward = new TableFrontier(t, g, nodes, b, c);
+        if (bidirectional) {
+            backward = new TableFrontier(t, g, nodes, b, c);
+            forward.meet(backward);
+            backward.meet(forward);
+        }
+        reachedGoal = false;
+        searching = false;
+        pathStart = NodeArena.NONE;
+        heap = null;
+    }
+
+    public boolean isSearching() {
+        return searching;
+    }
+
+    public boolean reachedGoal() {
+        return reachedGoal;
+    }
+
+    /**
+     * @return the node at the start of the last complete path, or NONE.
+     */
+    public int getPathStart() {
+        return pathStart;
+    }
+
+    /**
+     * @return the storage of this context's nodes. Nodes are valid until the
+     * next search is started.
+     */
+    public NodeArena getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Count the work of this context's open lists from the next search on.
+     * Bit scans and budget charges are counted by making the context with a
+     * CountingScan and a CountingBudget.
+     *
+     * @param s counters to add to, or null to stop counting.
+     */
+    public void setStats(SearchStats s) {
+        stats = s;
+    }
+
+    /**
+     * Create a node, charge it against the budget and insert it into the queue.
+     * A node that turns off the row of the diagonal step that found it is put
+     * off instead if every walkable square of the row from the step to the
+     * node has been visited already, unless its row or column holds the goal.
+     *
+     * @param x x-coordinate of the new node.
+     * @param y y-coordinate of the new node.
+     * @param last node the new node was reached from.
+     * @param dir direction of search from the new node.
+     * @param dist distance traveled to the new node.
+     */
+    private void insert(int x, int y, int last, int dir, int dist) {
+        budget.allocated();
+        int node = nodes.add(x, y, last, dir, dist);
+        int from = nodes.direction[last];
+        int stepX = nodes.x[last] + (from < 5 ? 1 : -1);    // Square of the diagonal step.
+        int stepY = nodes.y[last] + (from == 1 || from == 7 ? -1 : 1);
+        if (pruning && stepY == y && x >= 0 && x < map.width && y != goalY && x != goalX
+                && !heap.anyUnvisited(y, Math.min(stepX, x), Math.max(stepX, x), map)) {
+            if (deferredCount == deferred.length) {
+                deferred = Arrays.copyOf(deferred, deferredCount * 2);
+            }
+            deferred[deferredCount++] = node;
+            return;
+        }
+        heap.insert(node);
+    }
+
+    /**
+     * End the current search at the goal.
+     *
+     * @param goal node at the goal.
+     * @return the node at the start of the path.
+     */
+    private int finish(int goal) {
+        searching = false;
+        reachedGoal = true;
+        pathStart = heap.retrace(goal);
+        return pathStart;
+    }
+
+    /**
+     * Resume the previous search.
+     *
+     * @return the node at the start of the path, or of a partial path.
+     */
+    public int resume() {
+        return getPath(null, null);
+    }
+
+    /**
+     * Search for a path from point a to point b.
+     *
+     * @param a start of the path.
+     * @param b end of the path.
+     * @return the node at the start of this path, or NodeArena.NONE if there
+     * is no path.
+     */
+    public int getPath(int[] a, int[] b) {
+        if (a != null) {
+            return getPath(a[0], a[1], b[0], b[1]);
+        }
+        searching = true;
+        budget.begin();
+        return search();
+    }
+
+    /**
+     * Search for a path from (ax,ay) to (bx,by).
+     *
+     * @return the node at the start of this path, or NodeArena.NONE if there
+     * is no path.
+     */
+    public int getPath(int ax, int ay, int bx, int by) {
+        if (table != null) {
+            if (!table.isCurrent() || (bounds != null && !bounds.isCurrent())) {
+                throw new IllegalStateException("JumpTable or GoalBounds is older than its map");
+            }
+        }
+        searching = true;
+        nodes.clear();
+        if (table != null) {
+            forward.start(ax, ay, bx, by);
+            heap = forward.heap;
+            if (backward != null) {
+                backward.start(bx, by, ax, ay);
+                backward.heap.stats = stats;
+            }
+        } else {
+            if (heap == null) {
+                heap = new HashQueue(nodes, map.width, map.height, ax, ay, bx, by);
+            } else {
+                heap.reset(ax, ay, bx, by);
+            }
+            deferredCount = 0;
+            pruning = true;
+        }
+        heap.stats = stats;
+        goalX = bx;
+        goalY = by;
+        reachedGoal = false;
+        pathStart = NodeArena.NONE;
+        budget.begin();
+        return search();
+    }
+
+    /**
+     * Expand nodes of the current search until it ends or its budget is low.
+     *
+     * @return the node at the start of the path found, the start of a partial
+     * path if the budget ran low, or NodeArena.NONE if there is no path.
+     */
+    private int search() {
+        if (backward != null) {
+            return searchBidirectional();
+        } else if (table != null) {
+            return searchTable();
+        }
+        
+        // distances from location to next void (x = stepX, y = stepY)
+        int stepX, stepY;
+        stepX = -1;
+        stepY = -1;
+        // previous distances (x-1 = lastStepX, y-1 = lastStepY)
+        int lastStepX, lastStepY;
+        
+        try {
+            while (heap.size != 0 && budget.hasRemaining()) {
+                // Get the next node
+                int next = heap.remove();
+                budget.expanded();
+                
+                // Position of the next Node
+                int x = nodes.x[next];
+                int y = nodes.y[next];
+
+
+                switch (nodes.direction[next]) {    // determine the direction of movement
+
+                    case 1: // direction = NE
+
+                        if (nodes.distanceX[next] >= 0) {
+                            lastStepX = nodes.distanceX[next];
+                            lastStepY = nodes.distanceY[next];
+                        } else {
+                        // initialize as the distance from this node to x and y voids
+                            lastStepX = rowScan.distanceRight(x, y, map.mapX);
+                            lastStepY = colScan.distanceLeft(y, x, map.mapY);
+                        }
+                        
+                        if (lastStepX != 0) {
+                            // check if the goal is directly reachable from this location
+                            if (goalX == x) {
+                                if (goalY <= y && goalY >= y - colScan.distanceLeft(y, x, map.mapY)) {
+                                    return finish(nodes.add(goalX, goalY, next, 0, 0));
+                                } else if (goalY >= y && goalY <= y + colScan.distanceRight(y, x, map.mapY)) {
+                                    return finish(nodes.add(goalX, goalY, next, 0, 0));
+                                }
+                            } else if (goalY == y) {
+                                if (goalX <= x && goalX >= x - rowScan.distanceLeft(x, y, map.mapX)) {
+                                    return finish(nodes.add(goalX, goalY, next, 0, 0));
+                                } else if (goalX >= x && goalX <= x + rowScan.distanceRight(x, y, map.mapX)) {
+                                    return finish(nodes.add(goalX, goalY, next, 0, 0));
+                                }
+                            }
+
+                            // step = distances to x and y voids & properly increment/decrement location
+                            stepX = rowScan.distanceRight(++x, --y, map.mapX);
+                            stepY = colScan.distanceLeft(y, x, map.mapY);
+
+                            // difference between last and current distances
+                            int dX = stepX - lastStepX; // should be -1
+
+                            if (dX >= 0) { // if x difference is greater than -1
+
+                                // check the number of consecutive voids at previous location + distanceRight of X
+                                int voids = rowScan.distanceVoidRight(x + lastStepX - 1, y + 1, map.mapX);
+
+                                // if the new difference is -1 or greater, add a new Node to the queue
+                                if (dX - voids >= -1) {
+                                    int distance = voids + lastStepX - 2;
+                                    // new direction is SE
+                                    insert(x + distance, y, next, 3, distance + 1 + nodes.distance[next]);
+                                }
+
+                            } else if (dX < -1) { // if x difference is less than -1
+
+                                // check the number of consecutive voids at current location + distanceRight of X
+                                int voids = rowScan.distanceVoidRight(x + stepX, y, map.mapX);
+
+                                // if the new difference is less than 0, add a new Node to the queue
+                                if (dX + voids < 0) {
+                                    // new direction is NE
+                                    int distance = voids + stepX - 1;
+                                    insert(x + distance, y + 1, next, 1, distance + 1 + nodes.distance[next]);
+                                }
+                            }
+
+                            int dY = stepY - lastStepY; // should be -1
+
+                            if (dY >= 0) { // if y difference is greater than -1
+
+                                // check the number of consecutive voids at previous location - distanceLeft of Y
+                                int voids = colScan.distanceVoidLeft(y - lastStepY + 1, x - 1, map.mapY);
+
+                                // if the new difference is -1 or greater, add a new Node to the queue
+                                if (dY - voids >= -1) {
+                                    // new direction is SE, need two waypoints
+                                    int distance = voids + lastStepY - 2;
+                                    insert(x, y - distance, next, 7, distance + 1 + nodes.distance[next]);
+                                }
+
+                            } else if (dY < -1) { // if y difference is less than -1
+
+                                // check the number of consecutive voids at current location - distanceLeft of Y
+                                int voids = colScan.distanceVoidLeft(y - stepY, x, map.mapY);
+
+                                // if the new difference is less than 0, add a new Node to the queue
+                                if (dY + voids < 0) {
+                                    // new direction is NW, need two waypoints
+                                    int distance = voids + stepY - 1;
+                                    insert(x - 1, y - distance, next, 1, distance + 1 + nodes.distance[next]);
+                                }
+                            }
+                        }
+                        break;
+
+                    case 3: // direction = SE
+                    
+                        if (nodes.distanceX[next] >= 0) {
+                            lastStepX = nodes.distanceX[next];
+                            lastStepY = nodes.distanceY[next];
+                        } else {
+                            // initialize as the distance from this node to x and y voids
+                            lastStepX = rowScan.distanceRight(x, y, map.mapX);
+                            lastStepY = colScan.distanceRight(y, x, map.mapY);
+                        }
+                        
+                        if (lastStepX != 0) {
+
+                            // check if the goal is directly reachable from this location
+                            if (goalX == x) {
+                                if (goalY <= y && goalY >= y - colScan.distanceLeft(y, x, map.mapY)) {
+                                    return finish(nodes.add(goalX, goalY, next, 0, 0));
+                                } else if (goalY >= y && goalY <= y + colScan.distanceRight(y, x, map.mapY)) {
+                                    return finish(nodes.add(goalX, goalY, next, 0, 0));
+                                }
+                            } else if (goalY == y) {
+                                if (goalX <= x && goalX >= x - rowScan.distanceLeft(x, y, map.mapX)) {
+                                    return finish(nodes.add(goalX, goalY, next, 0, 0));
+                                } else if (goalX >= x && goalX <= x + rowScan.distanceRight(x, y, map.mapX)) {
+                                    return finish(nodes.add(goalX, goalY, next, 0, 0));
+                                }
+                            }
+
+                            // step = distances to x and y voids & properly increment/decrement location
+                            stepX = rowScan.distanceRight(++x, ++y, map.mapX);
+                            stepY = colScan.distanceRight(y, x, map.mapY);
+
+                            // difference between last and current distances
+                            int dX = stepX - lastStepX; // should be -1
+
+                            if (dX >= 0) { // if x difference is greater than -1
+
+                                // check the number of consecutive voids at previous location + distanceRight of X
+                                int voids = rowScan.distanceVoidRight(x + lastStepX - 1, y - 1, map.mapX);
+
+                                // if the new difference is -1 or greater, add a new Node to the queue
+                                if (dX - voids >= -1) {
+                                    // new direction is SE
+                                    int distance = voids + lastStepX - 2;
+                                    insert(x + distance, y, next, 1, distance + 1 + nodes.distance[next]);
+                                }
+
+                            } else if (dX < -1) { // if x difference is less than -1
+
+                                // check the number of consecutive voids at current location + distanceRight of X
+                                int voids = rowScan.distanceVoidRight(x + stepX, y, map.mapX);
+
+                                // if the new difference is less than 0, add a new Node to the queue
+                                if (dX + voids < 0) {
+                                    // new direction is NE
+                                    int distance = voids + stepX - 1;
+                                    insert(x + distance, y - 1, next, 3, distance + 1 + nodes.distance[next]);
+                                }
+                            }
+
+                            int dY = stepY - lastStepY; // should be -1
+
+                            if (dY >= 0) { // if y difference is greater than -1
+
+                                // check the number of consecutive voids at previous location + distanceRight of Y
+                                int voids = colScan.distanceVoidRight(y + lastStepY - 1, x - 1, map.mapY);
+
+                                // if the new difference is -1 or greater, add a new Node to the queue
+                                if (dY - voids >= -1) {
+                                    // new direction is SE
+                                    int distance = voids + lastStepY - 2;
+                                    insert(x, y + distance, next, 5, distance + 1 + nodes.distance[next]);
+                                }
+
+                            } else if (dY < -1) { // if y difference is less than -1
+
+                                // check the number of consecutive voids at current location + distanceRight of Y
+                                int voids = colScan.distanceVoidRight(y + stepY, x, map.mapY);
+
+                                // if the new difference is less than 0, add a new Node to the queue
+                                if (dY + voids < 0) {
+                                    // new direction is NW
+                                    int distance = voids + stepY - 1;
+                                    insert(x - 1, y + distance, next, 3, distance + 1 + nodes.distance[next]);
+                                }
+                            }
+                        }
+                        break;
+
+                    case 5: // direction = SW
+                    
+                        if (nodes.distanceX[next] >= 0) {
+                            lastStepX = nodes.distanceX[next];
+                            lastStepY = nodes.distanceY[next];
+                        } else {
+                            // initialize as the distance from this node to x and y voids
+                            lastStepX = rowScan.distanceLeft(x, y, map.mapX);
+                            lastStepY = colScan.distanceRight(y, x, map.mapY);
+                        }
+                        
+                        if (lastStepX != 0) {
+
+                            // check if the goal is directly reachable from this location
+                            if (goalX == x) {
+                                if (goalY <= y && goalY >= y - colScan.distanceLeft(y, x, map.mapY)) {
+                                    return finish(nodes.add(goalX, goalY, next, 0, 0));
+                                } else if (goalY >= y && goalY <= y + colScan.distanceRight(y, x, map.mapY)) {
+                                    return finish(nodes.add(goalX, goalY, next, 0, 0));
+                                }
+                            } else if (goalY == y) {
+                                if (goalX <= x && goalX >= x - rowScan.distanceLeft(x, y, map.mapX)) {
+                                    return finish(nodes.add(goalX, goalY, next, 0, 0));
+                                } else if (goalX >= x && goalX <= x + rowScan.distanceRight(x, y, map.mapX)) {
+                                    return finish(nodes.add(goalX, goalY, next, 0, 0));
+                                }
+                            }
+
+                            // step = distances to x and y voids & properly increment/decrement location
+                            stepX = rowScan.distanceLeft(--x, ++y, map.mapX);
+                            stepY = colScan.distanceRight(y, x, map.mapY);
+
+                            // difference between last and current distances
+                            int dX = stepX - lastStepX; // should be -1
+
+                            if (dX >= 0) { // if x difference is greater than -1
+
+                                // check the number of consecutive voids at previous location - distanceLeft of X
+                                int voids = rowScan.distanceVoidLeft(x - lastStepX + 1, y - 1, map.mapX);
+
+                                // if the new difference is -1 or greater, add a new Node to the queue
+                                if (dX - voids >= -1) {
+                                    // new direction is NW
+                                    int distance = voids + lastStepX - 2;
+                                    insert(x - distance, y, next, 7, distance + 1 + nodes.distance[next]);
+                                }
+
+                            } else if (dX < -1) { // if x difference is less than -1
+
+                                // check the number of consecutive voids at current location - distanceLeft of X
+                                int voids = rowScan.distanceVoidLeft(x - stepX, y, map.mapX);
+
+                                // if the new difference is less than 0, add a new Node to the queue
+                                if (dX + voids < 0) {
+                                    // new direction is NE
+                                    int distance = voids + stepX - 1;
+                                    insert(x - distance, y - 1, next, 5, distance + 1 + nodes.distance[next]);
+                                }
+                            }
+
+                            int dY = stepY - lastStepY; // should be -1
+
+                            if (dY >= 0) { // if y difference is greater than -1
+
+                                // check the number of consecutive voids at previous location + distanceRight of Y
+                                int voids = colScan.distanceVoidRight(y + lastStepY - 1, x + 1, map.mapY);
+
+                                // if the new difference is -1 or greater, add a new Node to the queue
+                                if (dY - voids >= -1) {
+                                    // new direction is SE, need two waypoints
+                                    int distance = voids + lastStepY - 2;
+                                    insert(x, y + distance, next, 3, distance + 1 + nodes.distance[next]);
+                                }
+
+                            } else if (dY < -1) { // if y difference is less than -1
+
+                                // check the number of consecutive voids at current location + distanceRight of Y
+                                int voids = colScan.distanceVoidRight(y + stepY, x, map.mapY);
+
+                                // if the new difference is less than 0, add a new Node to the queue
+                                if (dY + voids < 0) {
+                                    // new direction is NW, need two waypoints
+                                    int distance = voids + stepY - 1;
+                                    insert(x + 1, y + distance, next, 5, distance + 1 + nodes.distance[next]);
+                                }
+                            }
+                        }
+                        break;
+
+                    default: // direction = NW
+                        if (nodes.distanceX[next] >= 0) {
+                            lastStepX = nodes.distanceX[next];
+                            lastStepY = nodes.distanceY[next];
+                        } else {
+                            // initialize as the distance from this node to x and y voids
+                            lastStepX = rowScan.distanceLeft(x, y, map.mapX);
+                            lastStepY = colScan.distanceLeft(y, x, map.mapY);
+                        }
+                        
+                        if (lastStepX != 0) {
+
+                            // check if the goal is directly reachable from this location
+                            if (goalX == x) {
+                                if (goalY <= y && goalY >= y - colScan.distanceLeft(y, x, map.mapY)) {
+                                    return finish(nodes.add(goalX, goalY, next, 0, 0));
+                                } else if (goalY >= y && goalY <= y + colScan.distanceRight(y, x, map.mapY)) {
+                                    return finish(nodes.add(goalX, goalY, next, 0, 0));
+                                }
+                            } else if (goalY == y) {
+                                if (goalX <= x && goalX >= x - rowScan.distanceLeft(x, y, map.mapX)) {
+                                    return finish(nodes.add(goalX, goalY, next, 0, 0));
+                                } else if (goalX >= x && goalX <= x + rowScan.distanceRight(x, y, map.mapX)) {
+                                    return finish(nodes.add(goalX, goalY, next, 0, 0));
+                                }
+                            }
+
+                            // step = distances to x and y voids & properly increment/decrement location
+                            stepX = rowScan.distanceLeft(--x, --y, map.mapX);
+                            stepY = colScan.distanceLeft(y, x, map.mapY);
+
+                            // difference between last and current distances
+                            int dX = stepX - lastStepX; // should be -1
+
+                            if (dX >= 0) { // if x difference is greater than -1
+
+                                // check the number of consecutive voids at previous location - distanceLeft of X
+                                int voids = rowScan.distanceVoidLeft(x - lastStepX + 1, y + 1, map.mapX);
+
+                                // if the new difference is -1 or greater, add a new Node to the queue
+                                if (dX - voids >= -1) {
+                                    // new direction is NW
+                                    int distance = voids + lastStepX - 2;
+                                    insert(x - distance, y, next, 5, distance + 1 + nodes.distance[next]);
+                                }
+
+                            } else if (dX < -1) { // if x difference is less than -1
+
+                                // check the number of consecutive voids at current location - distanceLeft of X
+                                int voids = rowScan.distanceVoidLeft(x - stepX, y, map.mapX);
+
+                                // if the new difference is less than 0, add a new Node to the queue
+                                if (dX + voids < 0) {
+                                    // new direction is NE
+                                    int distance = voids + stepX - 1;
+                                    insert(x - distance, y + 1, next, 7, distance + 1 + nodes.distance[next]);
+                                }
+                            }
+
+                            int dY = stepY - lastStepY; // should be -1
+
+                            if (dY >= 0) { // if y difference is greater than -1
+
+                                // check the number of consecutive voids at previous location - distanceLeft of Y
+                                int voids = colScan.distanceVoidLeft(y - lastStepY + 1, x + 1, map.mapY);
+
+                                // if the new difference is -1 or greater, add a new Node to the queue
+                                if (dY - voids >= -1) {
+                                    // new direction is SE
+                                    int distance = voids + lastStepY - 2;
+                                    insert(x, y - distance, next, 1, distance + 1 + nodes.distance[next]);
+                                }
+
+                            } else if (dY < -1) { // if y difference is less than -1
+
+                                // check the number of consecutive voids at current location - distanceLeft of Y
+                                int voids = colScan.distanceVoidLeft(y - stepY, x, map.mapY);
+
+                                // if the new difference is less than 0, add a new Node to the queue
+                                if (dY + voids < 0) {
+                                    // new direction is NW
+                                    int distance = voids + stepY - 1;
+                                    insert(x + 1, y - distance, next, 7, distance + 1 + nodes.distance[next]);
+                                }
+                            }
+                        }
+                        break;
+                }
+                
+                if (stepX > 0) {
+                    int newNode = nodes.add(x, y, next, nodes.direction[next], 1 + nodes.distance[next]);
+                    nodes.distanceY[newNode] = stepY;
+                    nodes.distanceX[newNode] = stepX;
+                    budget.allocated();
+                    heap.insert(newNode);
+                    
+                    if (budget.isLow()) {
+                    
+                        return heap.retrace(newNode);
+                    }
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {     // Stepped off the map.
+            if (heap.size != 0) {
+                if (!budget.isLow()) {
+                    return search();
+                } else {
+                    return heap.retrace(heap.peek(heap.peek()));
+                }
+            }
+        }
+        if (heap.size != 0) {
+            // The budget ran out before the queue did; the search is suspended.
+            return heap.retrace(heap.peek(heap.peek()));
+        }
+        if (deferredCount != 0) {
+            // Search the nodes put off after all, whatever was visited since.
+            pruning = false;
+            for (int i = 0; i < deferredCount; i++) {
+                heap.insertOpen(deferred[i]);
+            }
+            deferredCount = 0;
+            return search();
+        }
+        searching = false;
+        return NodeArena.NONE;
+    }
+
+    /**
+     * Expand nodes of the current JPS+ search until it ends or its budget is
+     * low.
+     *
+     * @return the node at the start of the path found, the start of a partial
+     * path if the budget ran low, or NodeArena.NONE if there is no path.
+     */
+    private int searchTable() {
+        while (heap.size != 0 && budget.hasRemaining()) {
+            int goal = forward.step();
+            if (goal != NodeArena.NONE) {
+                return finish(goal);
+            }
+            if (budget.isLow() && heap.size != 0) {
+                return heap.retrace(heap.peek(heap.peek()));
+            }
+        }
+        if (heap.size != 0) {
+            // The budget ran out before the queue did; the search is suspended.
+            return heap.retrace(heap.peek(heap.peek()));
+        }
+        searching = false;
+        return NodeArena.NONE;
+    }
+
+    /**
+     * Expand nodes of the current bidirectional JPS+ search until it ends or
+     * its budget is low. A partial path is always taken from the forward
+     * search.
+     *
+     * @return the node at the start of the path found, the start of a partial
+     * path if the budget ran low, or NodeArena.NONE if there is no path.
+     */
+    private int searchBidirectional() {
+        TableFrontier f = forward, b = backward;
+        while (budget.hasRemaining()) {
+            int cost = Math.min(f.meetCost, b.meetCost);
+            if (f.heap.size == 0 || b.heap.size == 0
+                    || f.lowestCost() >= cost || b.lowestCost() >= cost) {
+                if (cost == Integer.MAX_VALUE) {
+                    searching = false;
+                    return NodeArena.NONE;
+                }
+                return f.meetCost <= b.meetCost
+                        ? join(f.meetX, f.meetY, f.meetVia, f.meetOtherVia)
+                        : join(b.meetX, b.meetY, b.meetOtherVia, b.meetVia);
+            }
+            
+            // Expand the smaller open list.
+            if (f.heap.size <= b.heap.size) {
+                int goal = f.step();
+                if (goal != NodeArena.NONE) {
+                    return finish(goal);
+                }
+            } else {
+                int goal = b.step();
+                if (goal != NodeArena.NONE) {
+                    // The backward search reached the start.
+                    return join(b.goalX, b.goalY, f.via[b.goalY * f.width + b.goalX], goal);
+                }
+            }
+            if (budget.isLow() && heap.size != 0) {
+                return heap.retrace(heap.peek(heap.peek()));
+            }
+        }
+        // The budget ran out before the search ended; the search is suspended.
+        return heap.size != 0 ? heap.retrace(heap.peek(heap.peek())) : NodeArena.NONE;
+    }
+
+    /**
+     * End a bidirectional search with the path through a square where the
+     * forward and backward searches cross. Nodes are added from the square
+     * to the goal, following the backward search's path in reverse.
+     *
+     * @param x x-coordinate of the square.
+     * @param y y-coordinate of the square.
+     * @param forwardVia forward node at the square or lined up with it.
+     * @param backwardVia backward node at the square or lined up with it.
+     * @return the node at the start of the path.
+     */
+    private int join(int x, int y, int forwardVia, int backwardVia) {
+        int last = forwardVia;
+        if (nodes.x[last] != x || nodes.y[last] != y) {
+            last = add(last, x, y, nodes.direction[forwardVia]);
+        }
+        for (int back = backwardVia; back != NodeArena.NONE; back = nodes.mapLast[back]) {
+            if (nodes.x[back] != nodes.x[last] || nodes.y[back] != nodes.y[last]) {
+                last = add(last, nodes.x[back], nodes.y[back], (nodes.direction[back] + 4) & 7);
+            }
+        }
+        return finish(last);
+    }
+
+    /**
+     * Add a node to a path, lined up with the node before it.
+     * @return the new node.
+     */
+    private int add(int last, int x, int y, int dir) {
+        int cost = forward.cost.estimate(x - nodes.x[last], y - nodes.y[last]);
+        budget.allocated();
+        return nodes.add(x, y, last, dir, nodes.distance[last] + cost);
+    }
+}
@@ -0,0 +1,138 @@
+package bytecodeNav;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the work done by searches, for profiling outside of the hot
+ * path. Nothing is counted unless a SearchStats is attached:
+ *
+ * - SearchContext.setStats() counts the inserts, rejected duplicates and
+ *   bucket bitmap reads of its open lists.
+ * - CountingScan wraps a BitScan and counts its calls of each kind, e.g. the
+ *   NavTools calls made through a NavToolsScan.
+ * - CountingBudget wraps a SearchBudget and counts what is charged to it.
+ *
+ * A SearchStats belongs to one thread. Clear it before a query to read the
+ * counts of that query, and add it to an Aggregate to total queries across
+ * threads.
+ *
+ * @author David
+ */
+public class SearchStats {
+
+    // Kinds of bit scans, as counted in scans.
+    public static final int LEFT = 0, RIGHT = 1, VOID_LEFT = 2, VOID_RIGHT = 3;
+
+    long expansions;    // Nodes expanded (SearchBudget.expanded()).
+    long allocations;   // Nodes created (SearchBudget.allocated()).
+    long inserts;       // Nodes inserted into an open list.
+    long rejected;      // Nodes HashQueue.insert() turned away as already searched.
+    long bucketScans;   // Longs of the bucket bitmaps read to find the best bucket.
+    final long[] scans = new long[4];   // Bit scans of each kind.
+
+    /**
+     * Set every counter to zero.
+     */
+    public void clear() {
+        expansions = 0;
+        allocations = 0;
+        inserts = 0;
+        rejected = 0;
+        bucketScans = 0;
+        for (int k = 0; k < scans.length; k++) {
+            scans[k] = 0;
+        }
+    }
+
+    public long getExpansions() {
+        return expansions;
+    }
+
+    public long getAllocations() {
+        return allocations;
+    }
+
+    public long getInserts() {
+        return inserts;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public long getBucketScans() {
+        return bucketScans;
+    }
+
+    /**
+     * @param kind LEFT, RIGHT, VOID_LEFT or VOID_RIGHT.
+     * @return bit scans of the kind.
+     */
+    public long getScans(int kind) {
+        return scans[kind];
+    }
+
+    @Override
+    public String toString() {
+        return "expansions=" + expansions + " allocations=" + allocations + " inserts=" + inserts
+                + " rejected=" + rejected + " bucketScans=" + bucketScans
+                + " scans=" + scans[LEFT] + "/" + scans[RIGHT] + "/" + scans[VOID_LEFT] + "/" + scans[VOID_RIGHT];
+    }
+
+    /**
+     * Totals of many SearchStats, which any number of threads may add to at
+     * once. Every counter is a LongAdder, so threads adding at the same time
+     * update separate cells instead of contending for one.
+     */
+    public static class Aggregate {
+
+        final LongAdder queries = new LongAdder();
+        final LongAdder expansions = new LongAdder();
+        final LongAdder allocations = new LongAdder();
+        final LongAdder inserts = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder bucketScans = new LongAdder();
+        final LongAdder[] scans = { new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder() };
+
+        /**
+         * Add the counts of one query, or of any number of queries.
+         * @param s counts to add.
+         * @param count number of queries counted in s.
+         */
+        public void add(SearchStats s, int count) {
+            queries.add(count);
+            expansions.add(s.expansions);
+            allocations.add(s.allocations);
+            inserts.add(s.inserts);
+            rejected.add(s.rejected);
+            bucketScans.add(s.bucketScans);
+            for (int k = 0; k < scans.length; k++) {
+                scans[k].add(s.scans[k]);
+            }
+        }
+
+        /**
+         * @return number of queries added.
+         */
+        public long queries() {
+            return queries.sum();
+        }
+
+        /**
+         * @return the totals so far. Not an atomic snapshot while threads are
+         * still adding.
+         */
+        public SearchStats sum() {
+            SearchStats s = new SearchStats();
+            s.expansions = expansions.sum();
+            s.allocations = allocations.sum();
+            s.inserts = inserts.sum();
+            s.rejected = rejected.sum();
+            s.bucketScans = bucketScans.sum();
+            for (int k = 0; k < scans.length; k++) {
+                s.scans[k] = scans[k].sum();
+            }
+            return s;
+        }
+    }
+}
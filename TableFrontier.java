@@ -0,0 +1,252 @@
+package bytecodeNav;
+
+import java.util.Arrays;
+
+/**
+ * One direction of a JPS+ search: an open list searching from a start toward a
+ * goal by table lookups, and the best distance to each location. SearchContext
+ * runs one TableFrontier for a JPS+ search and two for a bidirectional one.
+ *
+ * When a frontier has another frontier searching toward it, it also records
+ * the distance along its jumps to every square they pass, and remembers the
+ * shortest path through a square that both frontiers have passed.
+ *
+ * When the cost model weighs terrain, a jump is charged by the class of the
+ * square it lands on, which every square of the jump shares, and a node on a
+ * terrain boundary is expanded in every direction.
+ *
+ * Distances are stamped with the generation of the search that wrote them, so
+ * starting a search does not clear them, and the open list is reused.
+ *
+ * @author David
+ */
+class TableFrontier {
+
+    final JumpTable table;      // Jump distances of the map.
+    final GoalBounds bounds;    // Goal bounding boxes of the map, or null.
+    final NodeArena nodes;      // Storage of the nodes; may be shared with the other frontier.
+    final SearchBudget budget;  // Budget charged for every expansion and node.
+    final CostModel cost;       // Costs of moves; distances are in these units.
+    final int width;            // Width of the map.
+    final int[] best;           // Best distance to each location, if stamped with generation.
+    final int[] bestStamp;
+    int generation;             // Stamp of the current search.
+    HashQueue heap;             // Open list of the current search.
+    int goalX, goalY;           // Coordinates of the goal of the current search.
+    int origin;                 // Distance of the start nodes.
+
+    // Meeting with a frontier searching the other way, if any.
+    TableFrontier other;
+    int[] passed;               // Distance to each square along the jumps, if stamped with generation.
+    int[] passedStamp;
+    int[] via;                  // Node whose jump passed each square.
+    int meetCost;               // Length of the shortest path through both frontiers.
+    int meetX, meetY;           // Square where that path crosses from one frontier to the other.
+    int meetVia, meetOtherVia;  // Nodes of this and the other frontier that reach it.
+
+    TableFrontier(JumpTable t, GoalBounds g, NodeArena n, SearchBudget b, CostModel c) {
+        table = t;
+        cost = c;
+        bounds = g;
+        nodes = n;
+        budget = b;
+        width = t.width;
+        best = new int[t.width * t.height];
+        bestStamp = new int[best.length];
+    }
+
+    /**
+     * Let this frontier meet another frontier searching the opposite way.
+     */
+    void meet(TableFrontier o) {
+        other = o;
+        passed = new int[best.length];
+        passedStamp = new int[best.length];
+        via = new int[best.length];
+    }
+
+    /**
+     * Start a search from (ax,ay) to (bx,by).
+     */
+    void start(int ax, int ay, int bx, int by) {
+        if (++generation == 0) {    // Stamps wrapped around; clear them once.
+            Arrays.fill(bestStamp, 0);
+            if (passedStamp != null) {
+                Arrays.fill(passedStamp, 0);
+            }
+            generation = 1;
+        }
+        if (heap == null) {
+            heap = new HashQueue(nodes, table.width, table.height, cost, ax, ay, bx, by);
+        } else {
+            heap.reset(ax, ay, bx, by);
+        }
+        goalX = bx;
+        goalY = by;
+        origin = cost.estimate(bx - ax, by - ay);
+        if (other != null) {
+            passed[ay * width + ax] = 0;
+            passedStamp[ay * width + ax] = generation;
+            via[ay * width + ax] = heap.peek(heap.peek());
+            meetCost = Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * @return best distance to a location in the current search, or MAX_VALUE.
+     */
+    int best(int index) {
+        return bestStamp[index] == generation ? best[index] : Integer.MAX_VALUE;
+    }
+
+    /**
+     * @return distance to a square along the jumps of the current search, or
+     * MAX_VALUE.
+     */
+    int passed(int index) {
+        return passedStamp[index] == generation ? passed[index] : Integer.MAX_VALUE;
+    }
+
+    /**
+     * @return lowest possible length of a path through the open list.
+     */
+    int lowestCost() {
+        return heap.peek() - origin;
+    }
+
+    /**
+     * Expand the best node of the open list, which must not be empty.
+     * @return the node if it is at the goal, or NodeArena.NONE.
+     */
+    int step() {
+        int next = heap.remove();
+        int x = nodes.x[next];
+        int y = nodes.y[next];
+        int dist = nodes.distance[next];
+        if (dist > best(y * width + x)) {
+            return NodeArena.NONE;  // A shorter way here was found after this node was queued.
+        }
+        best[y * width + x] = dist;
+        bestStamp[y * width + x] = generation;
+        budget.expanded();
+        if (x == goalX && y == goalY) {
+            return next;
+        }
+
+        int dir = nodes.direction[next];
+        if (table.isBoundary(x, y)) {  // The terrain around changes, so no direction is pruned.
+            for (int d = 0; d < 8; d++) {
+                expand(next, d);
+            }
+        } else if ((dir & 1) == 0) {   // Straight: ahead, and diagonals around walls beside this node.
+            expand(next, dir);
+            if (!table.free(x + JumpTable.DX[(dir + 6) & 7], y + JumpTable.DY[(dir + 6) & 7])) {
+                expand(next, (dir + 7) & 7);
+            }
+            if (!table.free(x + JumpTable.DX[(dir + 2) & 7], y + JumpTable.DY[(dir + 2) & 7])) {
+                expand(next, (dir + 1) & 7);
+            }
+        } else {                // Diagonal: ahead, both straight parts, and around walls behind.
+            expand(next, dir);
+            expand(next, (dir + 7) & 7);
+            expand(next, (dir + 1) & 7);
+            if (!table.free(x - JumpTable.DX[(dir + 1) & 7], y - JumpTable.DY[(dir + 1) & 7])) {
+                expand(next, (dir + 6) & 7);
+            }
+            if (!table.free(x - JumpTable.DX[(dir + 7) & 7], y - JumpTable.DY[(dir + 7) & 7])) {
+                expand(next, (dir + 2) & 7);
+            }
+        }
+        return NodeArena.NONE;
+    }
+
+    /**
+     * Queue the successor of a node in one direction: the goal or the square
+     * lined up with it if the goal is reachable that way, and the next jump
+     * point if there is one. Nothing is queued if the goal is outside of the
+     * direction's goal bounding box.
+     *
+     * @param from node to expand.
+     * @param dir direction of search.
+     */
+    private void expand(int from, int dir) {
+        int x = nodes.x[from];
+        int y = nodes.y[from];
+        if (bounds != null && !bounds.contains(x, y, dir, goalX, goalY)) {
+            return;     // No optimal path to the goal starts this way.
+        }
+        int jump = table.get(dir, x, y);
+        int reach = jump > 0 ? jump : -jump;    // Walkable squares in this direction.
+        int dx = JumpTable.DX[dir], dy = JumpTable.DY[dir];
+        int toX = goalX - x, toY = goalY - y;
+
+        // Steps to the goal, or to the square lined up with it, if it is ahead.
+        int steps = 0;
+        if (dx == 0) {
+            steps = toX == 0 && Integer.signum(toY) == dy ? Math.abs(toY) : 0;
+        } else if (dy == 0) {
+            steps = toY == 0 && Integer.signum(toX) == dx ? Math.abs(toX) : 0;
+        } else if (Integer.signum(toX) == dx && Integer.signum(toY) == dy) {
+            steps = Math.min(Math.abs(toX), Math.abs(toY));
+        }
+        if (steps > 0 && steps <= reach && steps != jump) {
+            queue(from, dir, steps);
+        }
+        if (jump > 0) {
+            queue(from, dir, jump);
+        }
+    }
+
+    /**
+     * Queue the square some steps away from a node if this is the shortest
+     * way to it so far, and check the squares on the way for the other
+     * frontier.
+     */
+    private void queue(int from, int dir, int steps) {
+        int x = nodes.x[from];
+        int y = nodes.y[from];
+        int dx = JumpTable.DX[dir], dy = JumpTable.DY[dir];
+        int dist = steps * cost.step(dir);
+        if (cost.terrain) {
+            dist *= cost.weight(table.map.terrain(x + steps * dx, y + steps * dy));
+        }
+        dist += nodes.distance[from];
+        int index = (y + steps * dy) * width + x + steps * dx;
+        if (dist < best(index)) {
+            best[index] = dist;
+            bestStamp[index] = generation;
+            budget.allocated();
+            heap.insertOpen(nodes.add(x + steps * dx, y + steps * dy, from, dir, dist));
+            if (other != null) {
+                pass(from, x, y, dir, steps);
+            }
+        }
+    }
+
+    /**
+     * Record the squares passed by a jump, and the shortest path through a
+     * square the other frontier has passed.
+     */
+    private void pass(int from, int x, int y, int dir, int steps) {
+        int dx = JumpTable.DX[dir], dy = JumpTable.DY[dir];
+        int step = cost.step(dir);
+        int dist = nodes.distance[from] - origin;
+        for (int i = 1; i <= steps; i++) {
+            int index = (y + i * dy) * width + x + i * dx;
+            dist += step;
+            if (dist < passed(index)) {
+                passed[index] = dist;
+                passedStamp[index] = generation;
+                via[index] = from;
+                int otherPassed = other.passed(index);
+                if (otherPassed != Integer.MAX_VALUE && dist + otherPassed < meetCost) {
+                    meetCost = dist + otherPassed;
+                    meetX = x + i * dx;
+                    meetY = y + i * dy;
+                    meetVia = from;
+                    meetOtherVia = other.via[index];
+                }
+            }
+        }
+    }
+}
@@ -41,16 +41,6 @@ public class TestMaps {
     }
     
     public static long[][] getYMap(long[][] x) {
-        long[][] bitArray = new long[256][4];
-        
-        for (int i = 0; i < 256; i++) {
-            
-            for(int j = 0; j < 256; j++) {
-                if ((x[i][j/64] & (1L << (63-(j % 64)))) != 0) {
-                    bitArray[j][i/64] |= 1L << (63-(i % 64));
-                }
-            }
-        }
-        return bitArray;
+        return BitTranspose.columns(x, 256, 256);
     }
 }
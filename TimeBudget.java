@@ -0,0 +1,39 @@
+package bytecodeNav;
+
+/**
+ * Budget measured in wall-clock nanoseconds per slice, for searches that run
+ * time-sliced under a latency target outside of Battlecode.
+ *
+ * @author David
+ */
+public class TimeBudget implements SearchBudget {
+
+    final long slice, slack;
+    long deadline;      // System.nanoTime() at which the current slice ends.
+
+    /**
+     * Constructor.
+     * @param slice nanoseconds a search may run before it is suspended.
+     * @param slack nanoseconds before the deadline at which a partial path is returned.
+     */
+    public TimeBudget(long slice, long slack) {
+        this.slice = slice;
+        this.slack = slack;
+    }
+
+    public void begin() {
+        deadline = System.nanoTime() + slice;
+    }
+
+    public boolean hasRemaining() {
+        return deadline - System.nanoTime() > 0;
+    }
+
+    public boolean isLow() {
+        return deadline - System.nanoTime() < slack;
+    }
+
+    public void expanded() {}
+
+    public void allocated() {}
+}
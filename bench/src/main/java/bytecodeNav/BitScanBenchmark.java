@@ -0,0 +1,89 @@
+package bytecodeNav;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Cost of one call to each of the four bit scans, for both BitScan backends,
+ * on random rows of a given density of set bits. "interior" scans start in the
+ * middle of a long and "boundary" scans start within two bits of either end
+ * of a long, where a scan is most likely to continue into the next long.
+ *
+ * @author David
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitScanBenchmark {
+
+    @Param({"navtools", "intrinsic"})
+    String backend;
+
+    @Param({"0.02", "0.2", "0.5", "0.98"})
+    double density;
+
+    @Param({"interior", "boundary"})
+    String position;
+
+    static final int QUERIES = 1024;    // Must be a power of two.
+
+    BitScan scan;
+    long[][] map;
+    int[] xs, ys;
+    int next;
+
+    @Setup
+    public void setup() {
+        scan = backend.equals("navtools") ? new NavToolsScan() : new IntrinsicScan();
+        Random random = new Random(388);
+        map = new long[256][4];
+        for (int y = 0; y < 256; y++) {
+            for (int x = 0; x < 256; x++) {
+                if (random.nextDouble() < density) {
+                    map[y][x / 64] |= 1L << (63 - (x % 64));
+                }
+            }
+        }
+        xs = new int[QUERIES];
+        ys = new int[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            int word = random.nextInt(4);
+            int bit;
+            if (position.equals("interior")) {
+                bit = 8 + random.nextInt(48);
+            } else {
+                bit = random.nextBoolean() ? random.nextInt(2) : 62 + random.nextInt(2);
+            }
+            xs[i] = word * 64 + bit;
+            ys[i] = random.nextInt(256);
+        }
+    }
+
+    @Benchmark
+    public int distanceLeft() {
+        int i = next++ & (QUERIES - 1);
+        return scan.distanceLeft(xs[i], ys[i], map);
+    }
+
+    @Benchmark
+    public int distanceRight() {
+        int i = next++ & (QUERIES - 1);
+        return scan.distanceRight(xs[i], ys[i], map);
+    }
+
+    @Benchmark
+    public int distanceVoidLeft() {
+        int i = next++ & (QUERIES - 1);
+        return scan.distanceVoidLeft(xs[i], ys[i], map);
+    }
+
+    @Benchmark
+    public int distanceVoidRight() {
+        int i = next++ & (QUERIES - 1);
+        return scan.distanceVoidRight(xs[i], ys[i], map);
+    }
+}
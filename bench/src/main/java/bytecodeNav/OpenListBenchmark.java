@@ -0,0 +1,104 @@
+package bytecodeNav;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Cost of filling an open list with a search's worth of nodes and emptying it
+ * again, including starting the open list as every search does: "new" makes
+ * a new open list, "reset" reuses one through reset().
+ *
+ * "narrow" scores rise slowly with small random steps, like the f(n) of the
+ * nodes an A* search inserts on an open map. "wide" scores are spread over a
+ * few thousand values, like a search that has to back out of a maze pocket.
+ *
+ * @author David
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OpenListBenchmark {
+
+    @Param({"hash", "heap"})
+    String queue;
+
+    @Param({"narrow", "wide"})
+    String spread;
+
+    @Param({"64", "1024"})
+    int nodes;
+
+    @Param({"new", "reset"})
+    String start;
+
+    static final int START = 28, GOAL = 228;
+
+    NodeArena arena;
+    int[] xs, ys, directions, distances;
+    HashQueue hashQueue;
+    Heap heap;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(388);
+        arena = new NodeArena(nodes + 4);
+        xs = new int[nodes];
+        ys = new int[nodes];
+        directions = new int[nodes];
+        distances = new int[nodes];
+        int score = GOAL - START;
+        for (int i = 0; i < nodes; i++) {
+            // Every node needs its own location, or the open list rejects it.
+            xs[i] = START + i % 200;
+            ys[i] = START + i / 200;
+            directions[i] = 1 + 2 * random.nextInt(4);
+            int h = Math.max(Math.abs(GOAL - xs[i]), Math.abs(GOAL - ys[i]));
+            int f;
+            if (spread.equals("narrow")) {
+                score += random.nextInt(3);
+                f = score + random.nextInt(8);
+            } else {
+                f = score + random.nextInt(4000);
+            }
+            distances[i] = Math.max(f - h, 0);
+        }
+    }
+
+    @Benchmark
+    public int insertRemove() {
+        arena.clear();
+        int sum = 0;
+        if (queue.equals("hash")) {
+            HashQueue q = hashQueue;
+            if (q == null || start.equals("new")) {
+                q = hashQueue = new HashQueue(arena, START, START, GOAL, GOAL);
+            } else {
+                q.reset(START, START, GOAL, GOAL);
+            }
+            for (int i = 0; i < nodes; i++) {
+                q.insert(arena.add(xs[i], ys[i], NodeArena.NONE, directions[i], distances[i]));
+            }
+            while (q.size != 0) {
+                sum += q.remove();
+            }
+        } else {
+            Heap q = heap;
+            if (q == null || start.equals("new")) {
+                q = heap = new Heap(arena, new int[] { START, START }, new int[] { GOAL, GOAL });
+            } else {
+                q.reset(new int[] { START, START }, new int[] { GOAL, GOAL });
+            }
+            for (int i = 0; i < nodes; i++) {
+                q.insert(arena.add(xs[i], ys[i], NodeArena.NONE, directions[i], distances[i]));
+            }
+            while (q.size != 0) {
+                sum += q.remove();
+            }
+        }
+        return sum;
+    }
+}
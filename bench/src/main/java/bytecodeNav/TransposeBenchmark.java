@@ -0,0 +1,61 @@
+package bytecodeNav;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Cost of deriving the column-major bit arrays of a map from its row-major
+ * bit arrays, one bit at a time and a 64x64 tile at a time.
+ *
+ * @author David
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransposeBenchmark {
+
+    @Param({"test", "random"})
+    String map;
+
+    @Param({"256", "4096"})
+    int size;
+
+    long[][] mapX;
+
+    @Setup
+    public void setup() {
+        if (map.equals("test") && size == 256) {
+            mapX = TestMaps.getXMap();
+        } else {
+            Random random = new Random(388);
+            mapX = new long[size][size / 64];
+            for (int y = 0; y < size; y++) {
+                for (int x = 0; x < size / 64; x++) {
+                    mapX[y][x] = random.nextLong();
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public long[][] bitLoop() {
+        long[][] mapY = new long[size][size / 64];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if ((mapX[i][j / 64] & (1L << (63 - (j % 64)))) != 0) {
+                    mapY[j][i / 64] |= 1L << (63 - (i % 64));
+                }
+            }
+        }
+        return mapY;
+    }
+
+    @Benchmark
+    public long[][] swapMask() {
+        return BitTranspose.columns(mapX, size, size);
+    }
+}